@@ -0,0 +1,48 @@
+package exam;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+
+/**
+ * Synthetic bank files for the benchmarks. JMH runs every parameter combination in its
+ * own fork, so each fork writes a bank of the requested size and points {@code exam.bank}
+ * at it before {@link QuestionBank} is first touched.
+ */
+final class BenchmarkBank {
+    static final String SUBJECT = "Benchmark";
+
+    private BenchmarkBank() {
+    }
+
+    /** Writes a one-subject bank of {@code size} items and installs it; returns the subject. */
+    static String install(int size) throws IOException {
+        Path file = Files.createTempFile("bench", ".oqb");
+        file.toFile().deleteOnExit();
+        Random rnd = new Random(size);
+        try (MappedQuestionBank.Writer w = new MappedQuestionBank.Writer(file)) {
+            for (int i = 0; i < size; i++) {
+                String[] options = new String[4];
+                for (int j = 0; j < 4; j++) options[j] = "Option " + j + " for item " + i;
+                w.add(SUBJECT, new Question("Item " + i + ": which of the following best describes concept "
+                        + rnd.nextInt(1 << 20) + " in the reference material?", options, rnd.nextInt(4)));
+            }
+        }
+        System.setProperty("exam.bank", file.toString());
+        if (QuestionBank.view(SUBJECT).size() != size) {
+            throw new IllegalStateException("QuestionBank was initialized before the benchmark bank was installed");
+        }
+        return SUBJECT;
+    }
+
+    /** A session on a fresh paper with about 90% of the questions answered at random. */
+    static ExamSession answeredSession(String subject) {
+        ExamSession s = ExamSession.create("candidate", subject);
+        Random rnd = new Random(7);
+        for (int i = 0; i < s.paper.size(); i++) {
+            if (rnd.nextInt(10) != 0) s.select(i, rnd.nextInt(4));
+        }
+        return s;
+    }
+}
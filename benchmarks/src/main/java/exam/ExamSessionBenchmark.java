@@ -0,0 +1,63 @@
+package exam;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The per-candidate hot paths: starting an exam (paper generation, which replaced the
+ * shuffle in startExam), walking a paper's question order, grading, and building the
+ * result screen's report.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class ExamSessionBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private String subject;
+    private ExamSession session;
+    private String[] users;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        subject = BenchmarkBank.install(size);
+        session = BenchmarkBank.answeredSession(subject);
+        session.answerKey(); // built once per session, not per evaluate()
+        QuestionBank.getQuestions(subject); // decode every item up front
+        users = new String[1024];
+        for (int i = 0; i < users.length; i++) users[i] = "candidate-" + i;
+    }
+
+    /** ExamSession.create as called from startExam: derives the seed and builds the paper. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object startExam() {
+        return ExamSession.create(users[next++ & (users.length - 1)], subject);
+    }
+
+    /** Resolving every position of a paper to its bank item. */
+    @Benchmark
+    public void paperOrder(Blackhole bh) {
+        Paper p = session.paper;
+        for (int i = 0; i < p.size(); i++) bh.consume(p.item(i));
+    }
+
+    @Benchmark
+    public int evaluate() {
+        session.evaluate();
+        return session.score;
+    }
+
+    /** The StringBuilder/String.format report shown by ResultPanel.showResult. */
+    @Benchmark
+    public String resultDetails() {
+        return OfflineExamApp.resultDetails(session);
+    }
+}
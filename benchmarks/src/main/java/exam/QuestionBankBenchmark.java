@@ -0,0 +1,40 @@
+package exam;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/** Serving a subject from the mapped bank: the full copy handed to callers, and one cold decode. */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "-Xmx2g")
+public class QuestionBankBenchmark {
+    @Param({"10", "1000", "100000", "1000000"})
+    public int size;
+
+    private String subject;
+    private MappedQuestionBank bank;
+
+    @Setup(Level.Trial)
+    public void setUp() throws Exception {
+        subject = BenchmarkBank.install(size);
+        bank = MappedQuestionBank.open(java.nio.file.Paths.get(System.getProperty("exam.bank")));
+    }
+
+    /** QuestionBank.getQuestions once every item has been decoded and cached. */
+    @Benchmark
+    public Object getQuestions() {
+        return QuestionBank.getQuestions(subject);
+    }
+
+    /** Decoding one random item straight from the mapped file, bypassing the item cache. */
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.NANOSECONDS)
+    public Object decodeItem() {
+        return bank.decode(ThreadLocalRandom.current().nextInt(size));
+    }
+}
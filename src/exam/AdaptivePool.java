@@ -0,0 +1,320 @@
+package exam;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One subject's items as an adaptive-testing pool: 3PL IRT parameters per item (discrimination
+ * a, difficulty b, guessing c) and, for each point of a fixed ability grid, the items ranked
+ * by the Fisher information they give there.
+ *
+ * The ranking is what keeps selection cheap: the next item for an ability estimate is the
+ * first not-yet-administered entry in the list of the nearest grid point, so a selection reads
+ * a few ints instead of evaluating every item. Only the best {@link #RANKED} items are kept
+ * per point; a test that exhausts them falls back to a full scan.
+ *
+ * Parameters come from a calibration file (see {@link #calibrate}); uncalibrated items get
+ * a = 1, b = 0, c = 0, which makes them interchangeable. Items that tie for most informative
+ * are drawn uniformly with the test's seed, so an uncalibrated pool still spreads exposure
+ * over all its items instead of giving every candidate the lowest-numbered ones.
+ */
+final class AdaptivePool {
+    static final double D = 1.702; // logistic scaling to the normal-ogive metric
+    static final double MIN_THETA = -4, MAX_THETA = 4;
+    static final int GRID = 81; // steps of 0.1
+    static final double STEP = (MAX_THETA - MIN_THETA) / (GRID - 1);
+    static final int RANKED = 256;
+    static final int RANDOMESQUE = 5; // exposure control: pick among the best few available
+    static final int TIE_DRAWS = 32;  // random probes for tied items beyond the ranked lists
+
+    final String subject;
+    private final float[] a, b, c;
+    private final int[][] ranked; // ranked[g] = items by information at theta(g), best first
+    private final double[][] rankedInfo; // their information, same order
+
+    AdaptivePool(String subject, float[] a, float[] b, float[] c) {
+        if (a.length != b.length || a.length != c.length) throw new IllegalArgumentException("Parameter arrays differ in length");
+        this.subject = subject;
+        this.a = a;
+        this.b = b;
+        this.c = c;
+        this.ranked = new int[GRID][];
+        this.rankedInfo = new double[GRID][];
+        for (int g = 0; g < GRID; g++) {
+            ranked[g] = rank(theta(g));
+            rankedInfo[g] = new double[ranked[g].length];
+            for (int i = 0; i < ranked[g].length; i++) rankedInfo[g][i] = information(ranked[g][i], theta(g));
+        }
+    }
+
+    int size() {
+        return a.length;
+    }
+
+    static double theta(int gridPoint) {
+        return MIN_THETA + gridPoint * STEP;
+    }
+
+    static int gridPoint(double theta) {
+        int g = (int) Math.round((theta - MIN_THETA) / STEP);
+        return Math.max(0, Math.min(GRID - 1, g));
+    }
+
+    /** Probability of a correct answer to {@code item} at ability {@code theta}. */
+    double probability(int item, double theta) {
+        return c[item] + (1 - c[item]) / (1 + Math.exp(-D * a[item] * (theta - b[item])));
+    }
+
+    double information(int item, double theta) {
+        double p = probability(item, theta), ci = c[item];
+        double da = D * a[item], x = (p - ci) / (1 - ci);
+        return da * da * (1 - p) / p * x * x;
+    }
+
+    /** The {@code RANKED} most informative items at {@code theta}, best first (ties by index). */
+    private int[] rank(double theta) {
+        int k = Math.min(RANKED, size());
+        // Min-heap of the best k seen so far, root = weakest.
+        int[] heap = new int[k];
+        double[] info = new double[k];
+        int n = 0;
+        for (int item = 0; item < size(); item++) {
+            double v = information(item, theta);
+            if (n < k) {
+                int i = n++;
+                for (int parent; i > 0 && info[parent = (i - 1) >>> 1] > v; i = parent) {
+                    heap[i] = heap[parent];
+                    info[i] = info[parent];
+                }
+                heap[i] = item;
+                info[i] = v;
+            } else if (v > info[0]) {
+                int i = 0;
+                for (int child; (child = 2 * i + 1) < k; i = child) {
+                    if (child + 1 < k && info[child + 1] < info[child]) child++;
+                    if (info[child] >= v) break;
+                    heap[i] = heap[child];
+                    info[i] = info[child];
+                }
+                heap[i] = item;
+                info[i] = v;
+            }
+        }
+        Integer[] order = new Integer[k];
+        for (int i = 0; i < k; i++) order[i] = i;
+        Arrays.sort(order, (x, y) -> info[x] != info[y] ? Double.compare(info[y], info[x]) : Integer.compare(heap[x], heap[y]));
+        int[] out = new int[k];
+        for (int i = 0; i < k; i++) out[i] = heap[order[i]];
+        return out;
+    }
+
+    /**
+     * Next item for ability {@code theta}, skipping the first {@code count} entries of
+     * {@code administered}: one of the {@code RANDOMESQUE} most informative remaining items,
+     * or one of all the items tied for most informative if there are more, chosen by
+     * {@code draw}. Returns -1 when the pool is exhausted.
+     */
+    int select(double theta, int[] administered, int count, long draw) {
+        int g = gridPoint(theta);
+        int[] list = ranked[g];
+        double[] info = rankedInfo[g];
+        int first = 0;
+        while (first < list.length && contains(administered, count, list[first])) first++;
+        if (first < list.length) {
+            // Remaining items tied with the best one; the list is sorted, so they follow it.
+            double top = info[first] * (1 - 1e-9);
+            int tied = 0, end = first;
+            for (; end < list.length && info[end] >= top; end++) {
+                if (!contains(administered, count, list[end])) tied++;
+            }
+            if (end == list.length && size() > list.length) {
+                // The tie may run past the ranked list: probe the whole pool.
+                for (int k = 0; k < TIE_DRAWS; k++) {
+                    int item = (int) Long.remainderUnsigned(Paper.mix(draw + k), size());
+                    if (!contains(administered, count, item) && information(item, theta(g)) >= top) return item;
+                }
+            }
+            if (tied >= RANDOMESQUE) return nth(list, first, administered, count, (int) Long.remainderUnsigned(draw, tied));
+        }
+        int[] best = new int[RANDOMESQUE];
+        int found = 0;
+        for (int i = first; i < list.length; i++) {
+            int item = list[i];
+            if (contains(administered, count, item)) continue;
+            best[found++] = item;
+            if (found == RANDOMESQUE) break;
+        }
+        if (found == 0 && size() > RANKED) {
+            double top = -1;
+            for (int item = 0; item < size(); item++) {
+                if (contains(administered, count, item)) continue;
+                double v = information(item, theta);
+                if (v > top) {
+                    top = v;
+                    best[0] = item;
+                    found = 1;
+                }
+            }
+        }
+        return found == 0 ? -1 : best[(int) Long.remainderUnsigned(draw, found)];
+    }
+
+    /** The {@code n}th entry of {@code list} from {@code from} on that is not administered. */
+    private static int nth(int[] list, int from, int[] administered, int count, int n) {
+        for (int i = from; ; i++) {
+            if (contains(administered, count, list[i]) || n-- > 0) continue;
+            return list[i];
+        }
+    }
+
+    private static boolean contains(int[] items, int count, int item) {
+        for (int i = 0; i < count; i++) if (items[i] == item) return true;
+        return false;
+    }
+
+    // ---------- Calibration ----------
+
+    /**
+     * Rough 2PL parameters from classical statistics (p-value and point-biserial) once an
+     * item has {@code minAttempts} answers: a = r / sqrt(1 - r^2) and b = logit(1 - p) / (D r),
+     * with the biserial r approximated as 1.25 x point-biserial. Good enough to order items
+     * until a proper IRT calibration is available; other items keep the defaults.
+     */
+    static AdaptivePool calibrate(ItemAnalytics.SubjectItems items, long minAttempts) {
+        int n = items.size();
+        float[] a = new float[n], b = new float[n], c = new float[n];
+        for (int q = 0; q < n; q++) {
+            a[q] = 1;
+            long attempts = items.attempts(q);
+            double r = Math.min(0.95, 1.25 * items.pointBiserial(q));
+            if (attempts < minAttempts || !(r > 0.05)) continue;
+            double p = Math.max(0.01, Math.min(0.99, (double) items.correct(q) / attempts));
+            a[q] = (float) Math.min(3, r / Math.sqrt(1 - r * r));
+            b[q] = (float) Math.max(MIN_THETA, Math.min(MAX_THETA, Math.log((1 - p) / p) / (D * r)));
+        }
+        return new AdaptivePool(items.subject, a, b, c);
+    }
+
+    /** Appends this pool's parameters as {@code subject,item,a,b,c} lines. */
+    void writeParameters(Appendable out) throws IOException {
+        for (int i = 0; i < size(); i++) {
+            out.append(String.format(Locale.ROOT, "%s,%d,%.4f,%.4f,%.4f%n", subject, i, a[i], b[i], c[i]));
+        }
+    }
+
+    /**
+     * Pool for {@code subject} with parameters from {@code lines} ({@code subject,item,a,b,c},
+     * other subjects ignored) over a bank of {@code size} items.
+     */
+    static AdaptivePool parse(String subject, int size, Iterable<String> lines) {
+        float[] a = new float[size], b = new float[size], c = new float[size];
+        Arrays.fill(a, 1);
+        for (String line : lines) {
+            // The subject may contain commas; the four numbers never do.
+            String[] f = line.trim().split(",");
+            if (f.length < 5) continue;
+            String s = String.join(",", Arrays.copyOf(f, f.length - 4));
+            if (!s.equals(subject)) continue;
+            int item = Integer.parseInt(f[f.length - 4].trim());
+            if (item < 0 || item >= size) throw new IllegalArgumentException("Item " + item + " outside " + subject + " (" + size + " items)");
+            a[item] = Float.parseFloat(f[f.length - 3].trim());
+            b[item] = Float.parseFloat(f[f.length - 2].trim());
+            c[item] = Float.parseFloat(f[f.length - 1].trim());
+            if (!(a[item] > 0) || !(c[item] >= 0 && c[item] < 1)) throw new IllegalArgumentException("Bad parameters: " + line);
+        }
+        return new AdaptivePool(subject, a, b, c);
+    }
+
+    private static final ConcurrentHashMap<String, AdaptivePool> POOLS = new ConcurrentHashMap<>();
+
+    /**
+     * The pool for a subject of the current bank, built on first use with parameters from
+     * {@code -Dexam.irt} when set. Pools never change afterwards, so a replayed session
+     * selects the same items it did before.
+     */
+    static AdaptivePool forSubject(String subject) {
+        return POOLS.computeIfAbsent(subject, s -> {
+            int size = QuestionBank.view(s).size();
+            String path = System.getProperty("exam.irt");
+            if (path == null || path.isEmpty()) return parse(s, size, Collections.emptyList());
+            try {
+                return parse(s, size, Files.readAllLines(Paths.get(path), StandardCharsets.UTF_8));
+            } catch (IOException e) {
+                throw new IllegalStateException("Could not read item parameters " + path + ": " + e.getMessage(), e);
+            }
+        });
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * {@code java exam.AdaptivePool --calibrate <journal-dir> <out.csv> [minAttempts]} writes
+     * parameters estimated from journaled submissions; {@code java exam.AdaptivePool
+     * --synthetic <items> [candidates]} times pool building and item selection and checks how
+     * well simulated candidates' abilities are recovered.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("--calibrate")) {
+            ItemAnalytics analytics = new ItemAnalytics();
+            for (Iterator<CohortGrader.Submission> it = CohortGrader.journalCohort(Paths.get(args[1])); it.hasNext(); ) {
+                analytics.add(it.next());
+            }
+            long minAttempts = args.length > 3 ? Long.parseLong(args[3]) : 30;
+            try (BufferedWriter out = Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.UTF_8)) {
+                for (String subject : QuestionBank.subjects()) {
+                    ItemAnalytics.SubjectItems items = analytics.subject(subject);
+                    if (items != null) calibrate(items, minAttempts).writeParameters(out);
+                }
+            }
+            System.out.println("Wrote " + args[2]);
+            return;
+        }
+        if (args.length < 2 || !args[0].equals("--synthetic")) {
+            System.err.println("Usage: java exam.AdaptivePool --calibrate <journal-dir> <out.csv> [minAttempts]"
+                    + " | --synthetic <items> [candidates]");
+            System.exit(2);
+        }
+        int n = Integer.parseInt(args[1]);
+        int candidates = args.length > 2 ? Integer.parseInt(args[2]) : 10_000;
+        Random rnd = new Random(11);
+        float[] a = new float[n], b = new float[n], c = new float[n];
+        for (int i = 0; i < n; i++) {
+            a[i] = (float) Math.exp(0.3 * rnd.nextGaussian());
+            b[i] = (float) rnd.nextGaussian();
+            c[i] = (float) (0.2 * rnd.nextDouble());
+        }
+        long t0 = System.nanoTime();
+        AdaptivePool pool = new AdaptivePool("Synthetic", a, b, c);
+        System.out.printf("Built pool of %,d items in %.0f ms%n", n, (System.nanoTime() - t0) / 1e6);
+
+        LatencyHistogram select = new LatencyHistogram("adaptiveSelect");
+        int[] exposure = new int[n];
+        long administered = 0;
+        double squaredError = 0;
+        for (int k = 0; k < candidates; k++) {
+            double trueTheta = rnd.nextGaussian();
+            AdaptiveTest test = new AdaptiveTest(pool, rnd.nextLong(), AdaptiveTest.DEFAULT_LENGTH);
+            while (!test.finished()) {
+                int item = test.item(test.answered());
+                exposure[item]++;
+                long start = System.nanoTime();
+                test.respond(rnd.nextDouble() < pool.probability(item, trueTheta));
+                select.recordSince(start);
+            }
+            administered += test.answered();
+            squaredError += (test.theta() - trueTheta) * (test.theta() - trueTheta);
+        }
+        int maxExposure = 0;
+        for (int e : exposure) maxExposure = Math.max(maxExposure, e);
+        System.out.printf("%,d candidates: %.1f items each (max %d), ability RMSE %.3f, most exposed item in %.1f%% of tests%n",
+                candidates, (double) administered / candidates, AdaptiveTest.DEFAULT_LENGTH,
+                Math.sqrt(squaredError / candidates), 100.0 * maxExposure / candidates);
+        System.out.printf("Answer + next item: mean %.1f us, p99 %.1f us, max %.1f us%n", select.mean() / 1e3,
+                select.valueAtPercentile(99) / 1e3, select.valueAtPercentile(100) / 1e3);
+    }
+}
@@ -0,0 +1,108 @@
+package exam;
+
+/**
+ * State of one adaptive exam: the items administered so far and the running ability estimate.
+ *
+ * The estimate is the posterior mean (EAP) over the pool's ability grid with a standard normal
+ * prior; each answer multiplies in the item's likelihood at every grid point, so an update is
+ * {@link AdaptivePool#GRID} evaluations no matter how long the test is. After each answer the
+ * test either stops (maximum length, or at least {@link #MIN_LENGTH} items and a standard error
+ * at or below {@link #TARGET_SE}) or administers the next item.
+ *
+ * Item choice depends only on the pool, the seed and the answers, so replaying the answers in
+ * order rebuilds the same test. Answers are final: changing one would invalidate every item
+ * chosen after it.
+ */
+final class AdaptiveTest {
+    static final int DEFAULT_LENGTH = Integer.getInteger("exam.adaptive.length", 20);
+    static final int MIN_LENGTH = 5;
+    static final double TARGET_SE = 0.3;
+
+    final AdaptivePool pool;
+    private final long seed;
+    private final int[] items; // administered, in order
+    private int administered;
+    private int answered;
+    private final double[] logPosterior = new double[AdaptivePool.GRID];
+    private double theta;
+    private double standardError = 1;
+
+    AdaptiveTest(AdaptivePool pool, long seed, int maxLength) {
+        if (maxLength < 1) throw new IllegalArgumentException("Test length must be positive: " + maxLength);
+        this.pool = pool;
+        this.seed = seed;
+        this.items = new int[maxLength];
+        for (int g = 0; g < logPosterior.length; g++) {
+            double t = AdaptivePool.theta(g);
+            logPosterior[g] = -t * t / 2;
+        }
+        next();
+    }
+
+    int maxLength() {
+        return items.length;
+    }
+
+    synchronized int administered() {
+        return administered;
+    }
+
+    synchronized int answered() {
+        return answered;
+    }
+
+    /** Bank index of the item at {@code position}. */
+    synchronized int item(int position) {
+        if (position < 0 || position >= administered) {
+            throw new IndexOutOfBoundsException("Position " + position + " of " + administered + " administered");
+        }
+        return items[position];
+    }
+
+    /** True once the last administered item is answered and no further item follows. */
+    synchronized boolean finished() {
+        return answered == administered;
+    }
+
+    synchronized double theta() {
+        return theta;
+    }
+
+    synchronized double standardError() {
+        return standardError;
+    }
+
+    /** Scores the pending item, updates the estimate and administers the next item if the test goes on. */
+    synchronized void respond(boolean correct) {
+        if (finished()) throw new IllegalStateException("Adaptive test already finished");
+        int item = items[answered++];
+        for (int g = 0; g < logPosterior.length; g++) {
+            // Clamped so an extreme item cannot zero the whole posterior.
+            double p = Math.max(1e-9, Math.min(1 - 1e-9, pool.probability(item, AdaptivePool.theta(g))));
+            logPosterior[g] += Math.log(correct ? p : 1 - p);
+        }
+        estimate();
+        boolean precise = answered >= MIN_LENGTH && standardError <= TARGET_SE;
+        if (answered < items.length && !precise) next();
+    }
+
+    private void estimate() {
+        double max = Double.NEGATIVE_INFINITY;
+        for (double lp : logPosterior) max = Math.max(max, lp);
+        double sum = 0, mean = 0, squares = 0;
+        for (int g = 0; g < logPosterior.length; g++) {
+            double w = Math.exp(logPosterior[g] - max), t = AdaptivePool.theta(g);
+            sum += w;
+            mean += w * t;
+            squares += w * t * t;
+        }
+        mean /= sum;
+        theta = mean;
+        standardError = Math.sqrt(Math.max(0, squares / sum - mean * mean));
+    }
+
+    private void next() {
+        int item = pool.select(theta, items, administered, Paper.mix(seed + administered));
+        if (item >= 0) items[administered++] = item;
+    }
+}
@@ -0,0 +1,594 @@
+package exam;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only, memory-mapped write-ahead journal of exam activity (start, answer,
+ * navigate, submit), so sessions can be rebuilt after a crash.
+ *
+ * Records are framed as {length, crc32, payload} inside fixed-size segment files that are
+ * mapped once and filled front to back; a zero length marks the end of a segment.
+ * Because the segments are mapped, a record is in the OS page cache as soon as
+ * {@link #append} copies it, which already survives a JVM crash. The durability mode
+ * decides what is waited for on top of that, i.e. how much survives an OS crash or power
+ * loss and at what latency:
+ *
+ *  - NONE:  never wait; segments are forced when they fill up and on close.
+ *  - GROUP: a flusher thread forces the active segment every {@code groupCommitMillis}
+ *           (or sooner when appenders are waiting) and releases every appender the force
+ *           covered, so one fsync is shared by all appends in the window.
+ *  - SYNC:  force before every append returns.
+ *
+ * Every open starts a fresh segment, so {@link #checkpoint} compacts the directory first:
+ * it rewrites the replayed sessions into one checkpoint file holding only the records that
+ * still matter and deletes the segments it replaces. A session's answers go in as one packed
+ * {@link AnswerSheet} snapshot when that is smaller than an answer record per question. The checkpoint is renamed into place
+ * before anything is deleted, and replay skips segments it already covers, so a crash at
+ * any point loses nothing.
+ */
+final class AnswerJournal implements AutoCloseable {
+    enum Durability { NONE, GROUP, SYNC }
+
+    static final byte START = 1, ANSWER = 2, NAVIGATE = 3, SUBMIT = 4, ADAPTIVE_START = 5, SHEET = 6;
+    static final int DEFAULT_SEGMENT_BYTES = 64 << 20;
+    private static final int FRAME_BYTES = 8;
+
+    private final Path dir;
+    private final Durability durability;
+    private final long groupCommitMillis;
+    private final int segmentBytes;
+
+    private final ReentrantLock appendLock = new ReentrantLock();
+    private MappedByteBuffer segment; // guarded by appendLock
+    private int segmentNumber;        // guarded by appendLock
+    private long written;             // bytes appended since open; guarded by appendLock
+
+    private final ReentrantLock commitLock = new ReentrantLock();
+    private final Condition committed = commitLock.newCondition();
+    private final Condition commitRequested = commitLock.newCondition();
+    private volatile long durable;
+    private final Thread flusher;
+    private volatile boolean closed;
+
+    private final AtomicLong appends = new AtomicLong();
+    private final AtomicLong forces = new AtomicLong();
+
+    private static final ThreadLocal<ByteBuffer> SCRATCH = new ThreadLocal<ByteBuffer>() {
+        @Override
+        protected ByteBuffer initialValue() {
+            return ByteBuffer.allocate(4096);
+        }
+    };
+
+    private AnswerJournal(Path dir, Durability durability, long groupCommitMillis, int segmentBytes) throws IOException {
+        this.dir = dir;
+        this.durability = durability;
+        this.groupCommitMillis = groupCommitMillis;
+        this.segmentBytes = segmentBytes;
+        Files.createDirectories(dir);
+        java.util.List<Path> existing = segments(dir);
+        Path checkpoint = latestCheckpoint(dir);
+        this.segmentNumber = Math.max(existing.isEmpty() ? 0 : number(existing.get(existing.size() - 1)),
+                checkpoint == null ? 0 : number(checkpoint));
+        roll();
+        if (durability == Durability.GROUP) {
+            flusher = new Thread(this::flushLoop, "journal-flush");
+            flusher.setDaemon(true);
+            flusher.start();
+        } else {
+            flusher = null;
+        }
+    }
+
+    /**
+     * Opens a journal in {@code dir}. New records always go to a fresh segment after any
+     * existing ones, so call {@link #replay} first if there is state to recover.
+     */
+    static AnswerJournal open(Path dir, Durability durability, long groupCommitMillis) throws IOException {
+        return new AnswerJournal(dir, durability, groupCommitMillis, DEFAULT_SEGMENT_BYTES);
+    }
+
+    static AnswerJournal open(Path dir, Durability durability, long groupCommitMillis, int segmentBytes) throws IOException {
+        return new AnswerJournal(dir, durability, groupCommitMillis, segmentBytes);
+    }
+
+    /** A journal write, for callers that handle the IOException in one place. */
+    interface Action {
+        void apply(AnswerJournal j) throws IOException;
+    }
+
+    /** Journal directory from {@code -Dexam.journal}, or null when journaling is off. */
+    static Path configuredDir() {
+        String dir = System.getProperty("exam.journal");
+        return dir == null || dir.isEmpty() ? null : Paths.get(dir);
+    }
+
+    /**
+     * Opens {@code dir} with the durability from {@code -Dexam.journal.durability}
+     * (NONE, GROUP or SYNC; default GROUP) and {@code -Dexam.journal.groupMillis} (default 5).
+     */
+    static AnswerJournal openConfigured(Path dir) throws IOException {
+        Durability d = Durability.valueOf(System.getProperty("exam.journal.durability", "GROUP").toUpperCase(Locale.ROOT));
+        long group = Long.getLong("exam.journal.groupMillis", 5);
+        return open(dir, d, group);
+    }
+
+    // ---------- Records ----------
+
+    void start(String user, ExamSession s) throws IOException {
+        append(startRecord(user, s.subjectName, s.deadlineMillis, s.paper.seed, s.paper.size(),
+                s.adaptive == null ? 0 : s.length()));
+    }
+
+    private static ByteBuffer startRecord(String user, String subject, long deadlineMillis, long seed, int size,
+                                          int adaptiveLength) {
+        ByteBuffer b = begin(adaptiveLength == 0 ? START : ADAPTIVE_START, user, 26 + subject.length() * 3);
+        putString(b, subject);
+        b.putLong(deadlineMillis);
+        b.putLong(seed);
+        b.putInt(size);
+        if (adaptiveLength != 0) b.putInt(adaptiveLength);
+        return b;
+    }
+
+    void answer(String user, int index, int option) throws IOException {
+        append(answerRecord(user, index, option));
+    }
+
+    void navigate(String user, int index) throws IOException {
+        append(navigateRecord(user, index));
+    }
+
+    void submit(String user, int score) throws IOException {
+        append(submitRecord(user, score));
+    }
+
+    private static ByteBuffer answerRecord(String user, int index, int option) {
+        ByteBuffer b = begin(ANSWER, user, 5);
+        b.putInt(index);
+        b.put((byte) option);
+        return b;
+    }
+
+    /** Every answer of a session at once, as an {@link AnswerSheet} snapshot in position order. */
+    private static ByteBuffer sheetRecord(String user, int[] selected) {
+        AnswerSheet sheet = new AnswerSheet(selected.length);
+        for (int i = 0; i < selected.length; i++) if (selected[i] >= 0) sheet.set(i, selected[i]);
+        byte[] bytes = sheet.toBytes();
+        ByteBuffer b = begin(SHEET, user, bytes.length);
+        b.put(bytes);
+        return b;
+    }
+
+    private static ByteBuffer navigateRecord(String user, int index) {
+        ByteBuffer b = begin(NAVIGATE, user, 4);
+        b.putInt(index);
+        return b;
+    }
+
+    private static ByteBuffer submitRecord(String user, int score) {
+        ByteBuffer b = begin(SUBMIT, user, 4);
+        b.putInt(score);
+        return b;
+    }
+
+    private static ByteBuffer begin(byte type, String user, int extra) {
+        int need = FRAME_BYTES + 1 + 8 + 2 + user.length() * 3 + extra;
+        ByteBuffer b = SCRATCH.get();
+        if (b.capacity() < need) {
+            b = ByteBuffer.allocate(Integer.highestOneBit(need) << 1);
+            SCRATCH.set(b);
+        }
+        b.clear();
+        b.position(FRAME_BYTES);
+        b.put(type);
+        b.putLong(System.currentTimeMillis());
+        putString(b, user);
+        return b;
+    }
+
+    private static void putString(ByteBuffer b, String s) {
+        byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+        b.putShort((short) bytes.length);
+        b.put(bytes);
+    }
+
+    private static String getString(ByteBuffer b) {
+        byte[] bytes = new byte[b.getShort() & 0xFFFF];
+        b.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    // ---------- Append / commit ----------
+
+    /** Fills in the frame header of a record built by {@link #begin} and flips it for writing. */
+    private static ByteBuffer frame(ByteBuffer record) {
+        int len = record.position() - FRAME_BYTES;
+        CRC32 crc = new CRC32();
+        crc.update(record.array(), FRAME_BYTES, len);
+        record.putInt(0, len);
+        record.putInt(4, (int) crc.getValue());
+        record.flip();
+        return record;
+    }
+
+    private void append(ByteBuffer record) throws IOException {
+        frame(record);
+        if (record.remaining() + 4 > segmentBytes) throw new IOException("Record larger than a journal segment");
+
+        long end;
+        appendLock.lock();
+        try {
+            if (closed) throw new IOException("Journal closed");
+            // Keep 4 zero bytes at the end of every segment as the end marker.
+            if (segment.remaining() < record.remaining() + 4) {
+                segment.force();
+                forces.incrementAndGet();
+                roll();
+            }
+            segment.put(record);
+            written += record.limit();
+            end = written;
+            if (durability == Durability.SYNC) {
+                segment.force();
+                forces.incrementAndGet();
+                durable = end;
+            }
+        } finally {
+            appendLock.unlock();
+        }
+        appends.incrementAndGet();
+        if (durability == Durability.GROUP) awaitDurable(end);
+    }
+
+    private void awaitDurable(long end) throws IOException {
+        commitLock.lock();
+        try {
+            commitRequested.signal();
+            while (durable < end) {
+                if (closed && durable < end) throw new IOException("Journal closed before commit");
+                committed.awaitUninterruptibly();
+            }
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    private void flushLoop() {
+        while (!closed) {
+            commitLock.lock();
+            try {
+                commitRequested.await(groupCommitMillis, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                // closing
+            } finally {
+                commitLock.unlock();
+            }
+            flush();
+        }
+    }
+
+    /** Forces everything appended so far and releases the appenders it covers. */
+    void flush() {
+        MappedByteBuffer seg;
+        long target;
+        appendLock.lock();
+        try {
+            seg = segment;
+            target = written;
+        } finally {
+            appendLock.unlock();
+        }
+        if (target > durable) {
+            // Earlier segments were forced when they were rolled.
+            seg.force();
+            forces.incrementAndGet();
+        }
+        commitLock.lock();
+        try {
+            if (target > durable) durable = target;
+            committed.signalAll();
+        } finally {
+            commitLock.unlock();
+        }
+    }
+
+    // Caller holds appendLock (or is the constructor).
+    private void roll() throws IOException {
+        segmentNumber++;
+        Path file = dir.resolve(String.format("journal-%06d.log", segmentNumber));
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.CREATE_NEW,
+                StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            segment = ch.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    @Override
+    public void close() {
+        appendLock.lock();
+        try {
+            if (closed) return;
+            segment.force();
+            durable = written;
+            closed = true;
+        } finally {
+            appendLock.unlock();
+        }
+        commitLock.lock();
+        try {
+            committed.signalAll();
+        } finally {
+            commitLock.unlock();
+        }
+        if (flusher != null) flusher.interrupt();
+    }
+
+    long appends() {
+        return appends.get();
+    }
+
+    long forces() {
+        return forces.get();
+    }
+
+    // ---------- Recovery ----------
+
+    /** State of one session as rebuilt from the journal. */
+    static final class Recovered {
+        final String user;
+        String subject;
+        long seed;
+        int size;
+        int adaptiveLength; // 0 for a fixed paper
+        long deadlineMillis;
+        int[] selected;
+        int currentIndex;
+        boolean submitted;
+        int score;
+
+        Recovered(String user) {
+            this.user = user;
+        }
+
+        /** Rebuilds the session against the current question bank. */
+        ExamSession toSession() {
+            ExamSession s = adaptiveLength > 0
+                    ? ExamSession.restoreAdaptive(subject, seed, adaptiveLength)
+                    : ExamSession.restore(subject, seed);
+            if (s.paper.size() != size) {
+                throw new IllegalStateException("Bank for " + subject + " changed size: " + s.paper.size() + " != " + size);
+            }
+            s.deadlineMillis = deadlineMillis;
+            s.currentIndex = currentIndex;
+            // In position order: each adaptive answer administers the next position's item.
+            for (int i = 0; i < selected.length; i++) {
+                if (selected[i] >= 0) s.select(i, selected[i]);
+            }
+            if (submitted) s.score = score;
+            return s;
+        }
+    }
+
+    /** Sessions rebuilt from a journal. */
+    static final class Replayed {
+        /** Every submitted session, in the order they were started. */
+        final java.util.List<Recovered> submitted = new ArrayList<>();
+        /** Each user's unsubmitted session, if the last one they started is still open. */
+        final Map<String, Recovered> open = new LinkedHashMap<>();
+        int lastSegment; // highest segment number replayed or covered by the checkpoint
+
+        int size() {
+            return submitted.size() + open.size();
+        }
+    }
+
+    /**
+     * Replays every segment in {@code dir}: all submitted sessions, and at most one open
+     * session per user (starting another abandons the open one). Stops at the first torn
+     * or corrupt record, which can only be the tail of the segment that was being written
+     * when the process died.
+     */
+    static Replayed replay(Path dir) throws IOException {
+        Replayed state = new Replayed();
+        if (!Files.isDirectory(dir)) return state;
+        Path checkpoint = latestCheckpoint(dir);
+        int covered = 0;
+        if (checkpoint != null) {
+            replay(checkpoint, state);
+            covered = number(checkpoint);
+        }
+        for (Path file : segments(dir)) {
+            if (number(file) > covered) replay(file, state);
+            state.lastSegment = Math.max(state.lastSegment, number(file));
+        }
+        state.lastSegment = Math.max(state.lastSegment, covered);
+        return state;
+    }
+
+    private static void replay(Path file, Replayed state) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            MappedByteBuffer buf = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            while (buf.remaining() >= FRAME_BYTES) {
+                int len = buf.getInt();
+                int crc = buf.getInt();
+                if (len <= 0 || len > buf.remaining()) break;
+                ByteBuffer payload = buf.slice();
+                payload.limit(len);
+                CRC32 c = new CRC32();
+                byte[] bytes = new byte[len];
+                payload.duplicate().get(bytes);
+                c.update(bytes, 0, len);
+                if ((int) c.getValue() != crc) break;
+                apply(state, payload);
+                buf.position(buf.position() + len);
+            }
+        }
+    }
+
+    /**
+     * Replays {@code dir}, writes the result as a checkpoint and deletes the segments and
+     * older checkpoints it replaces; returns the replayed state. Call before {@link #open}.
+     */
+    static Replayed checkpoint(Path dir) throws IOException {
+        Replayed state = replay(dir);
+        if (state.lastSegment == 0) return state;
+        Path file = dir.resolve(String.format("checkpoint-%06d.log", state.lastSegment));
+        Path tmp = dir.resolve(file.getFileName() + ".tmp");
+        try (FileChannel out = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            for (Recovered r : state.submitted) write(out, r);
+            for (Recovered r : state.open.values()) write(out, r);
+            out.force(true);
+        }
+        Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        for (Path p : segments(dir)) if (number(p) <= state.lastSegment) Files.deleteIfExists(p);
+        for (Path p : files(dir, "checkpoint-*.log")) if (!p.equals(file)) Files.deleteIfExists(p);
+        return state;
+    }
+
+    /** The records that rebuild {@code r}: start, its answers, position and submit. */
+    private static void write(FileChannel out, Recovered r) throws IOException {
+        writeFully(out, frame(startRecord(r.user, r.subject, r.deadlineMillis, r.seed, r.size, r.adaptiveLength)));
+        int answered = 0;
+        for (int option : r.selected) if (option >= 0) answered++;
+        // One snapshot record (half a byte per question) or one 5-byte answer record per answer.
+        long header = FRAME_BYTES + 11 + r.user.getBytes(StandardCharsets.UTF_8).length;
+        if (header + AnswerSheet.snapshotBytes(r.selected.length) < answered * (header + 5)) {
+            writeFully(out, frame(sheetRecord(r.user, r.selected)));
+        } else {
+            for (int i = 0; i < r.selected.length; i++) {
+                if (r.selected[i] >= 0) writeFully(out, frame(answerRecord(r.user, i, r.selected[i])));
+            }
+        }
+        if (r.currentIndex != 0) writeFully(out, frame(navigateRecord(r.user, r.currentIndex)));
+        if (r.submitted) writeFully(out, frame(submitRecord(r.user, r.score)));
+    }
+
+    private static void writeFully(FileChannel out, ByteBuffer b) throws IOException {
+        while (b.hasRemaining()) out.write(b);
+    }
+
+    private static void apply(Replayed state, ByteBuffer p) {
+        byte type = p.get();
+        p.getLong(); // timestamp
+        String user = getString(p);
+        Recovered r = state.open.get(user);
+        if (type == START || type == ADAPTIVE_START) {
+            r = new Recovered(user);
+            r.subject = getString(p);
+            r.deadlineMillis = p.getLong();
+            r.seed = p.getLong();
+            r.size = p.getInt();
+            if (type == ADAPTIVE_START) r.adaptiveLength = p.getInt();
+            r.selected = new int[type == ADAPTIVE_START ? r.adaptiveLength : r.size];
+            Arrays.fill(r.selected, -1);
+            state.open.put(user, r);
+            return;
+        }
+        if (r == null) return; // submitted already, or started in a segment that no longer exists
+        switch (type) {
+            case ANSWER: {
+                int index = p.getInt();
+                if (index >= 0 && index < r.selected.length) r.selected[index] = p.get();
+                break;
+            }
+            case SHEET: {
+                AnswerSheet sheet = AnswerSheet.read(p);
+                for (int i = 0; i < r.selected.length && i < sheet.size(); i++) r.selected[i] = sheet.get(i);
+                break;
+            }
+            case NAVIGATE:
+                r.currentIndex = p.getInt();
+                break;
+            case SUBMIT:
+                r.submitted = true;
+                r.score = p.getInt();
+                state.open.remove(user);
+                state.submitted.add(r);
+                break;
+            default:
+                break;
+        }
+    }
+
+    private static java.util.List<Path> segments(Path dir) throws IOException {
+        return files(dir, "journal-*.log");
+    }
+
+    /** The checkpoint covering the most segments, or null if there is none. */
+    private static Path latestCheckpoint(Path dir) throws IOException {
+        java.util.List<Path> checkpoints = files(dir, "checkpoint-*.log");
+        return checkpoints.isEmpty() ? null : checkpoints.get(checkpoints.size() - 1);
+    }
+
+    private static java.util.List<Path> files(Path dir, String glob) throws IOException {
+        java.util.List<Path> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, glob)) {
+            for (Path p : ds) out.add(p);
+        }
+        out.sort(Comparator.comparingInt(AnswerJournal::number));
+        return out;
+    }
+
+    /** Segment number of a segment, or the last segment a checkpoint covers. */
+    private static int number(Path p) {
+        String n = p.getFileName().toString();
+        return Integer.parseInt(n.substring(n.indexOf('-') + 1, n.length() - ".log".length()));
+    }
+
+    // ---------- Benchmark ----------
+
+    /**
+     * Appends/second per durability mode:
+     * {@code java exam.AnswerJournal <dir> [threads] [seconds] [groupCommitMillis]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java exam.AnswerJournal <scratch-dir> [threads] [seconds] [groupCommitMillis]");
+            System.exit(2);
+        }
+        Path base = Paths.get(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 8;
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 3;
+        long group = args.length > 3 ? Long.parseLong(args[3]) : 2;
+
+        for (Durability d : Durability.values()) {
+            Path dir = base.resolve("bench-" + d.name().toLowerCase(Locale.ROOT) + "-" + System.nanoTime());
+            try (AnswerJournal j = open(dir, d, group, 16 << 20)) {
+                long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(seconds);
+                Thread[] ts = new Thread[threads];
+                for (int t = 0; t < threads; t++) {
+                    String user = "candidate-" + t;
+                    ts[t] = new Thread(() -> {
+                        try {
+                            for (int i = 0; System.nanoTime() < deadline; i++) j.answer(user, i & 127, i & 3);
+                        } catch (IOException e) {
+                            throw new RuntimeException(e);
+                        }
+                    });
+                    ts[t].start();
+                }
+                for (Thread t : ts) t.join();
+                System.out.printf("%-5s %2d threads: %,12.0f appends/s, %,d forces%n",
+                        d, threads, j.appends() / (double) seconds, j.forces());
+            }
+            deleteTree(dir);
+        }
+    }
+
+    private static void deleteTree(Path dir) throws IOException {
+        for (Path p : segments(dir)) Files.deleteIfExists(p);
+        Files.deleteIfExists(dir);
+    }
+}
@@ -0,0 +1,45 @@
+package exam;
+
+/**
+ * Correct options of a paper packed 2 bits per question, in the same lane layout as
+ * {@link AnswerSheet}, so scoring compares 32 questions per word. Immutable.
+ */
+final class AnswerKey {
+    private final int size;
+    private final long[] words;
+
+    AnswerKey(int[] correct) {
+        this.size = correct.length;
+        this.words = new long[AnswerSheet.answerWords(size)];
+        for (int q = 0; q < size; q++) {
+            if (correct[q] < 0 || correct[q] > 3) throw new IllegalArgumentException("Option out of range: " + correct[q]);
+            words[q >>> 5] |= (long) correct[q] << ((q & 31) << 1);
+        }
+    }
+
+    static AnswerKey of(java.util.List<Question> questions) {
+        int[] correct = new int[questions.size()];
+        for (int i = 0; i < correct.length; i++) correct[i] = questions.get(i).correctIndex;
+        return new AnswerKey(correct);
+    }
+
+    /** A copy of this key with question {@code q} re-keyed, e.g. after an erratum. */
+    AnswerKey withCorrect(int q, int option) {
+        int[] correct = new int[size];
+        for (int i = 0; i < size; i++) correct[i] = correct(i);
+        correct[q] = option;
+        return new AnswerKey(correct);
+    }
+
+    int size() {
+        return size;
+    }
+
+    int correct(int q) {
+        return (int) (words[q >>> 5] >>> ((q & 31) << 1)) & 3;
+    }
+
+    long word(int w) {
+        return words[w];
+    }
+}
@@ -0,0 +1,167 @@
+package exam;
+
+import java.nio.ByteBuffer;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Bit-packed answers for one paper: a 2-bit option per question (32 per word) plus
+ * "attempted" and "flagged" bitsets (64 per word). An option is only meaningful while its
+ * attempted bit is set, so "not attempted" needs no sentinel value.
+ *
+ * Words are updated with CAS, so concurrent requests for the same candidate need no lock.
+ * {@link #toBytes()} gives a compact snapshot of the same layout (about 4.5 bits per
+ * question versus 32 for an int per question), and {@link #score(AnswerKey)} grades a
+ * whole word of 32 answers with a handful of bit operations.
+ */
+final class AnswerSheet {
+    static final int OPTION_BITS = 2; // Question allows exactly 4 options
+    static final long EVEN_BITS = 0x5555555555555555L;
+
+    private final int size;
+    private final AtomicLongArray answers;
+    private final AtomicLongArray attempted;
+    private final AtomicLongArray flagged;
+
+    AnswerSheet(int size) {
+        this.size = size;
+        this.answers = new AtomicLongArray(answerWords(size));
+        this.attempted = new AtomicLongArray(bitWords(size));
+        this.flagged = new AtomicLongArray(bitWords(size));
+    }
+
+    static int answerWords(int size) {
+        return (size + 31) >>> 5;
+    }
+
+    static int bitWords(int size) {
+        return (size + 63) >>> 6;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** The chosen option, or -1 if not attempted. */
+    int get(int q) {
+        check(q);
+        if ((attempted.get(q >>> 6) & (1L << q)) == 0) return -1;
+        return (int) (answers.get(q >>> 5) >>> ((q & 31) << 1)) & 3;
+    }
+
+    /** Records an answer (-1 clears). Returns true if the visible answer changed. */
+    boolean set(int q, int option) {
+        check(q);
+        if (option < 0) return clearBit(attempted, q);
+        if (option > 3) throw new IllegalArgumentException("Option out of range: " + option);
+        int shift = (q & 31) << 1;
+        long lane = 3L << shift;
+        long prev, next;
+        do {
+            prev = answers.get(q >>> 5);
+            next = (prev & ~lane) | ((long) option << shift);
+        } while (prev != next && !answers.compareAndSet(q >>> 5, prev, next));
+        boolean newlyAttempted = setBit(attempted, q);
+        return newlyAttempted || prev != next;
+    }
+
+    boolean isFlagged(int q) {
+        check(q);
+        return (flagged.get(q >>> 6) & (1L << q)) != 0;
+    }
+
+    void setFlagged(int q, boolean flag) {
+        check(q);
+        if (flag) setBit(flagged, q); else clearBit(flagged, q);
+    }
+
+    int attemptedCount() {
+        int n = 0;
+        for (int i = 0; i < attempted.length(); i++) n += Long.bitCount(attempted.get(i));
+        return n;
+    }
+
+    int flaggedCount() {
+        int n = 0;
+        for (int i = 0; i < flagged.length(); i++) n += Long.bitCount(flagged.get(i));
+        return n;
+    }
+
+    /** Number of attempted questions whose option matches the key. */
+    int score(AnswerKey key) {
+        if (key.size() != size) throw new IllegalArgumentException("Key is for " + key.size() + " questions, sheet has " + size);
+        int score = 0;
+        for (int w = 0; w < answers.length(); w++) {
+            long att = spread((int) (attempted.get(w >>> 1) >>> ((w & 1) << 5)));
+            score += matches(answers.get(w), key.word(w), att);
+        }
+        return score;
+    }
+
+    /** Count of 2-bit lanes equal in {@code a} and {@code k}, restricted to lanes set in {@code mask}. */
+    static int matches(long a, long k, long mask) {
+        long x = a ^ k;
+        return Long.bitCount(~(x | (x >>> 1)) & mask & EVEN_BITS);
+    }
+
+    /** Moves bit i of a 32-bit value to bit 2i of the result (the low bit of lane i). */
+    static long spread(int bits) {
+        long x = bits & 0xFFFFFFFFL;
+        x = (x | (x << 16)) & 0x0000FFFF0000FFFFL;
+        x = (x | (x << 8)) & 0x00FF00FF00FF00FFL;
+        x = (x | (x << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        x = (x | (x << 2)) & 0x3333333333333333L;
+        x = (x | (x << 1)) & EVEN_BITS;
+        return x;
+    }
+
+    // ---------- Snapshot ----------
+
+    /** {size, answer words, attempted words, flagged words}, big-endian; journal checkpoints store sheets this way. */
+    byte[] toBytes() {
+        ByteBuffer b = ByteBuffer.allocate(snapshotBytes(size));
+        b.putInt(size);
+        for (int i = 0; i < answers.length(); i++) b.putLong(answers.get(i));
+        for (int i = 0; i < attempted.length(); i++) b.putLong(attempted.get(i));
+        for (int i = 0; i < flagged.length(); i++) b.putLong(flagged.get(i));
+        return b.array();
+    }
+
+    static int snapshotBytes(int size) {
+        return 4 + 8 * (answerWords(size) + 2 * bitWords(size));
+    }
+
+    /** Reads one snapshot at the buffer's position and advances past it. */
+    static AnswerSheet read(ByteBuffer b) {
+        AnswerSheet s = new AnswerSheet(b.getInt());
+        for (int i = 0; i < s.answers.length(); i++) s.answers.set(i, b.getLong());
+        for (int i = 0; i < s.attempted.length(); i++) s.attempted.set(i, b.getLong());
+        for (int i = 0; i < s.flagged.length(); i++) s.flagged.set(i, b.getLong());
+        return s;
+    }
+
+    // ---------- Bits ----------
+
+    private static boolean setBit(AtomicLongArray words, int q) {
+        long bit = 1L << q;
+        long prev;
+        do {
+            prev = words.get(q >>> 6);
+            if ((prev & bit) != 0) return false;
+        } while (!words.compareAndSet(q >>> 6, prev, prev | bit));
+        return true;
+    }
+
+    private static boolean clearBit(AtomicLongArray words, int q) {
+        long bit = 1L << q;
+        long prev;
+        do {
+            prev = words.get(q >>> 6);
+            if ((prev & bit) == 0) return false;
+        } while (!words.compareAndSet(q >>> 6, prev, prev & ~bit));
+        return true;
+    }
+
+    private void check(int q) {
+        if (q < 0 || q >= size) throw new IndexOutOfBoundsException("Question " + q + " of " + size);
+    }
+}
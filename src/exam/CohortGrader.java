@@ -0,0 +1,343 @@
+package exam;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Batch grading for whole cohorts, e.g. after an exam window closes or an answer key is
+ * corrected. Submissions are pulled from an iterator in fixed-size chunks, so the cohort
+ * never has to fit in memory at once, and each chunk is scored on a fork-join pool.
+ *
+ * Sheets are kept in bank order (see {@link Submission#of}) so every submission for a
+ * subject is graded against the same packed {@link AnswerKey}, 32 questions per word.
+ */
+class CohortGrader {
+    static final int CHUNK = 1 << 16;
+    static final int LEAF = 1 << 10;
+
+    /** One candidate's answers for one subject, indexed in bank order. */
+    static final class Submission {
+        final String user;
+        final String subject;
+        final AnswerSheet sheet;
+        // Bank items in the order they were presented, when that was not the whole subject
+        // (adaptive exams); null for a full paper.
+        final int[] presented;
+        int score = -1; // last grade, -1 until graded
+
+        Submission(String user, String subject, AnswerSheet sheet) {
+            this(user, subject, sheet, null);
+        }
+
+        Submission(String user, String subject, AnswerSheet sheet, int[] presented) {
+            this.user = user;
+            this.subject = subject;
+            this.sheet = sheet;
+            this.presented = presented;
+        }
+
+        /** Number of items presented. */
+        int length() {
+            return presented == null ? sheet.size() : presented.length;
+        }
+
+        /** Bank index of the {@code i}th item presented. */
+        int item(int i) {
+            return presented == null ? i : presented[i];
+        }
+
+        /** Maps a session's answers from paper order (items and options) into bank order. */
+        static Submission of(String user, ExamSession s) {
+            AnswerSheet bankOrder = new AnswerSheet(QuestionBank.view(s.subjectName).size());
+            int[] presented = s.adaptive == null ? null : new int[s.questions.size()];
+            for (int i = 0; i < s.questions.size(); i++) {
+                int item = s.item(i);
+                int sel = s.selection(i);
+                if (sel >= 0) bankOrder.set(item, s.bankOption(i, sel));
+                if (s.sheet.isFlagged(i)) bankOrder.setFlagged(item, true);
+                if (presented != null) presented[i] = item;
+            }
+            return new Submission(user, s.subjectName, bankOrder, presented);
+        }
+
+        /**
+         * Bank-order key for the items a session showed, read from its already-loaded questions.
+         * Items it never showed are keyed 0; {@link #of} leaves them unanswered, so they never score.
+         */
+        static AnswerKey key(ExamSession s) {
+            int[] correct = new int[QuestionBank.view(s.subjectName).size()];
+            for (int i = 0; i < s.questions.size(); i++) correct[s.item(i)] = s.bankOption(i, s.question(i).correctIndex);
+            return new AnswerKey(correct);
+        }
+    }
+
+    /**
+     * Score distribution for one subject, kept apart for adaptive submissions: those score
+     * out of the few items they were shown, so their totals do not mix with full papers.
+     */
+    static final class SubjectStats {
+        final String subject;
+        final boolean adaptive;
+        final String name; // report key: the subject, or "subject (adaptive)"
+        long[] histogram; // histogram[score] = number of candidates; sized by the longest paper graded
+        long count;
+        long changed; // scores that differ from the previous grade
+        long sum;
+        long sumSquares;
+
+        SubjectStats(String subject, boolean adaptive, int maxScore) {
+            this.subject = subject;
+            this.adaptive = adaptive;
+            this.name = name(subject, adaptive);
+            this.histogram = new long[maxScore + 1];
+        }
+
+        /** Counts a score out of {@code outOf}, the number of items the candidate was shown. */
+        void add(int score, int outOf, int previous) {
+            if (outOf >= histogram.length) histogram = Arrays.copyOf(histogram, outOf + 1);
+            histogram[score]++;
+            count++;
+            sum += score;
+            sumSquares += (long) score * score;
+            if (previous >= 0 && previous != score) changed++;
+        }
+
+        void merge(SubjectStats o) {
+            if (o.histogram.length > histogram.length) histogram = Arrays.copyOf(histogram, o.histogram.length);
+            for (int i = 0; i < o.histogram.length; i++) histogram[i] += o.histogram[i];
+            count += o.count;
+            changed += o.changed;
+            sum += o.sum;
+            sumSquares += o.sumSquares;
+        }
+
+        static String name(String subject, boolean adaptive) {
+            return adaptive ? subject + " (adaptive)" : subject;
+        }
+
+        double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        double stddev() {
+            if (count == 0) return 0;
+            double m = mean();
+            return Math.sqrt(Math.max(0, (double) sumSquares / count - m * m));
+        }
+
+        /** Smallest score s such that at least fraction p of candidates scored <= s. */
+        int percentile(double p) {
+            long need = (long) Math.ceil(p * count);
+            long seen = 0;
+            for (int s = 0; s < histogram.length; s++) {
+                seen += histogram[s];
+                if (seen >= need && seen > 0) return s;
+            }
+            return histogram.length - 1;
+        }
+    }
+
+    static final class Report {
+        final Map<String, SubjectStats> subjects = new TreeMap<>();
+        long graded;
+        long skipped; // submissions without a key for their subject
+        long elapsedNanos;
+
+        double perSecond() {
+            return elapsedNanos == 0 ? 0 : graded * 1e9 / elapsedNanos;
+        }
+
+        void print(java.io.PrintStream out) {
+            out.printf("Graded %,d submissions in %.2f s (%,.0f/s), %,d skipped%n",
+                    graded, elapsedNanos / 1e9, perSecond(), skipped);
+            for (SubjectStats s : subjects.values()) {
+                out.printf("  %-24s n=%,d mean=%.2f sd=%.2f min/p25/p50/p75/max=%d/%d/%d/%d/%d of %d, changed=%,d%n",
+                        s.name, s.count, s.mean(), s.stddev(), s.percentile(0), s.percentile(0.25),
+                        s.percentile(0.5), s.percentile(0.75), s.percentile(1), s.histogram.length - 1, s.changed);
+            }
+        }
+    }
+
+    private final ForkJoinPool pool;
+
+    CohortGrader() {
+        this(ForkJoinPool.commonPool());
+    }
+
+    CohortGrader(ForkJoinPool pool) {
+        this.pool = pool;
+    }
+
+    /**
+     * Scores every submission against its subject's key, storing the result in
+     * {@link Submission#score}. Grading already-graded submissions again (e.g. with a
+     * corrected key) reports how many scores changed.
+     */
+    Report grade(Map<String, AnswerKey> keys, Iterator<Submission> submissions) {
+        long start = System.nanoTime();
+        Report report = new Report();
+        Submission[] chunk = new Submission[CHUNK];
+        while (submissions.hasNext()) {
+            int n = 0;
+            while (n < CHUNK && submissions.hasNext()) chunk[n++] = submissions.next();
+            Partial p = pool.invoke(new GradeTask(keys, chunk, 0, n));
+            report.graded += n - p.skipped;
+            report.skipped += p.skipped;
+            for (Map<String, SubjectStats> part : Arrays.asList(p.subjects, p.adaptive)) {
+                for (SubjectStats s : part.values()) {
+                    SubjectStats total = report.subjects.get(s.name);
+                    if (total == null) report.subjects.put(s.name, s);
+                    else total.merge(s);
+                }
+            }
+        }
+        report.elapsedNanos = System.nanoTime() - start;
+        return report;
+    }
+
+    private static final class Partial {
+        final Map<String, SubjectStats> subjects = new HashMap<>(); // full papers, by subject
+        final Map<String, SubjectStats> adaptive = new HashMap<>();
+        long skipped;
+
+        Partial merge(Partial o) {
+            skipped += o.skipped;
+            merge(subjects, o.subjects);
+            merge(adaptive, o.adaptive);
+            return this;
+        }
+
+        private static void merge(Map<String, SubjectStats> into, Map<String, SubjectStats> from) {
+            for (SubjectStats s : from.values()) {
+                SubjectStats mine = into.get(s.subject);
+                if (mine == null) into.put(s.subject, s);
+                else mine.merge(s);
+            }
+        }
+    }
+
+    private static final class GradeTask extends RecursiveTask<Partial> {
+        final Map<String, AnswerKey> keys;
+        final Submission[] subs;
+        final int from, to;
+
+        GradeTask(Map<String, AnswerKey> keys, Submission[] subs, int from, int to) {
+            this.keys = keys;
+            this.subs = subs;
+            this.from = from;
+            this.to = to;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > LEAF) {
+                int mid = (from + to) >>> 1;
+                GradeTask left = new GradeTask(keys, subs, from, mid);
+                left.fork();
+                Partial right = new GradeTask(keys, subs, mid, to).compute();
+                return left.join().merge(right);
+            }
+            Partial p = new Partial();
+            for (int i = from; i < to; i++) {
+                Submission s = subs[i];
+                subs[i] = null; // let graded submissions go once the caller drops them
+                AnswerKey key = keys.get(s.subject);
+                if (key == null || key.size() != s.sheet.size()) {
+                    p.skipped++;
+                    continue;
+                }
+                int previous = s.score;
+                s.score = s.sheet.score(key);
+                boolean adaptive = s.presented != null;
+                Map<String, SubjectStats> stats = adaptive ? p.adaptive : p.subjects;
+                SubjectStats st = stats.get(s.subject);
+                // Sized by the paper, not the bank: an adaptive test scores out of its few presented items.
+                if (st == null) stats.put(s.subject, st = new SubjectStats(s.subject, adaptive, s.length()));
+                st.add(s.score, s.length(), previous);
+            }
+            return p;
+        }
+    }
+
+    /** Current bank keys for every subject. */
+    static Map<String, AnswerKey> bankKeys() {
+        Map<String, AnswerKey> keys = new HashMap<>();
+        for (String subject : QuestionBank.subjects()) keys.put(subject, QuestionBank.answerKey(subject));
+        return keys;
+    }
+
+    /** Submitted sessions recovered from a journal, in bank order. */
+    static Iterator<Submission> journalCohort(Path dir) throws IOException {
+        java.util.List<Submission> cohort = new ArrayList<>();
+        for (AnswerJournal.Recovered r : AnswerJournal.replay(dir).submitted) {
+            cohort.add(Submission.of(r.user, r.toSession()));
+        }
+        return cohort.iterator();
+    }
+
+    /**
+     * {@code n} reproducible synthetic submissions spread over the bank's subjects, each
+     * candidate with a random skill level; generated on demand, never held all at once.
+     */
+    static Iterator<Submission> syntheticCohort(int n) {
+        java.util.List<String> subjects = QuestionBank.subjects();
+        Random rnd = new Random(42);
+        return new Iterator<Submission>() {
+            int i;
+
+            @Override
+            public boolean hasNext() {
+                return i < n;
+            }
+
+            @Override
+            public Submission next() {
+                if (i >= n) throw new NoSuchElementException();
+                String subject = subjects.get(i % subjects.size());
+                java.util.List<Question> qs = QuestionBank.view(subject);
+                AnswerSheet sheet = new AnswerSheet(qs.size());
+                double skill = rnd.nextDouble();
+                for (int q = 0; q < qs.size(); q++) {
+                    if (rnd.nextDouble() < 0.1) continue; // not attempted
+                    sheet.set(q, rnd.nextDouble() < skill ? qs.get(q).correctIndex : rnd.nextInt(4));
+                }
+                return new Submission("candidate-" + i++, subject, sheet);
+            }
+        };
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * Grades every submitted session in a journal, or a synthetic cohort, then regrades it
+     * with the first question of each subject's key changed:
+     * {@code java exam.CohortGrader --journal <dir>} or {@code java exam.CohortGrader --synthetic <n>}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 || !(args[0].equals("--journal") || args[0].equals("--synthetic"))) {
+            System.err.println("Usage: java exam.CohortGrader --journal <dir> | --synthetic <n>");
+            System.exit(2);
+        }
+        java.util.List<Submission> cohort = new ArrayList<>();
+        Iterator<Submission> source = args[0].equals("--journal")
+                ? journalCohort(Paths.get(args[1]))
+                : syntheticCohort(Integer.parseInt(args[1]));
+        while (source.hasNext()) cohort.add(source.next());
+
+        CohortGrader grader = new CohortGrader();
+        Map<String, AnswerKey> keys = bankKeys();
+        grader.grade(keys, cohort.iterator()).print(System.out);
+
+        Map<String, AnswerKey> corrected = new HashMap<>();
+        for (Map.Entry<String, AnswerKey> e : keys.entrySet()) {
+            AnswerKey k = e.getValue();
+            corrected.put(e.getKey(), k.size() == 0 ? k : k.withCorrect(0, (k.correct(0) + 1) & 3));
+        }
+        System.out.println("Regrade with question 1 of each subject re-keyed:");
+        grader.grade(corrected, cohort.iterator()).print(System.out);
+    }
+}
@@ -0,0 +1,430 @@
+package exam;
+
+import javax.crypto.SecretKeyFactory;
+import javax.crypto.spec.PBEKeySpec;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Candidate roster with salted PBKDF2-HMAC-SHA256 password hashes.
+ *
+ * A roster file has one {@code user:iterations:salt:hash} line per candidate (salt and
+ * hash in Base64). Loading packs it into flat arrays: user names as UTF-8 in one byte
+ * array, salt+hash in another, and an open-addressing table of 64-bit name fingerprints
+ * pointing at rows. 100k candidates take about 10 MB and a lookup is one or two probes.
+ *
+ * Hashing is deliberately slow, so verification runs on a bounded pool sized to the
+ * cores. At the start of an exam, when everyone logs in at once, logins queue there rather
+ * than on request or UI threads. Once the queue is full, further logins are refused right
+ * away instead of waiting without limit.
+ */
+final class CredentialStore {
+    static final int SALT_BYTES = 16;
+    static final int HASH_BYTES = 32;
+    static final int DEFAULT_ITERATIONS = 20_000;
+    static final int DEFAULT_QUEUE = 4096;
+    private static final int SECRET_BYTES = SALT_BYTES + HASH_BYTES;
+
+    private final int count;
+    private final byte[] names;
+    private final int[] nameOffsets; // row -> start in names; count + 1 entries
+    private final byte[] secrets;    // row -> salt, hash
+    private final int[] iterations;
+    private final long[] slots;      // fingerprint, 0 = empty
+    private final int[] slotRows;
+    private final int mask;
+
+    private final byte[] decoySecret; // verified against for unknown users, so timing does not reveal them
+    private final int decoyIterations; // the roster's most common count, so the decoy costs what a real row does
+    private final ThreadPoolExecutor verifiers;
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong denied = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong(); // refused as busy, never verified
+
+    private static final ThreadLocal<SecretKeyFactory> PBKDF2 = ThreadLocal.withInitial(() -> {
+        try {
+            return SecretKeyFactory.getInstance("PBKDF2WithHmacSHA256");
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    });
+
+    private CredentialStore(int count, byte[] names, int[] nameOffsets, byte[] secrets, int[] iterations,
+                            int threads, int queue) {
+        this.count = count;
+        this.names = names;
+        this.nameOffsets = nameOffsets;
+        this.secrets = secrets;
+        this.iterations = iterations;
+        int capacity = Integer.highestOneBit(Math.max(4, count * 2 - 1)) << 1;
+        this.slots = new long[capacity];
+        this.slotRows = new int[capacity];
+        this.mask = capacity - 1;
+        for (int row = 0; row < count; row++) {
+            int slot = probe(fingerprint(names, nameOffsets[row], nameOffsets[row + 1]), row);
+            if (slotRows[slot] != row) {
+                throw new IllegalArgumentException("Duplicate user in roster: " + userAt(row));
+            }
+        }
+        this.decoySecret = new byte[SECRET_BYTES];
+        new SecureRandom().nextBytes(decoySecret);
+        this.decoyIterations = mostCommon(iterations, count);
+        AtomicLong n = new AtomicLong();
+        this.verifiers = new ThreadPoolExecutor(threads, threads, 0, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queue), r -> {
+                    Thread t = new Thread(r, "login-verify-" + n.incrementAndGet());
+                    t.setDaemon(true);
+                    return t;
+                });
+    }
+
+    /** Most frequent iteration count in the roster (the larger one on a tie); the default when empty. */
+    private static int mostCommon(int[] iterations, int count) {
+        if (count == 0) return DEFAULT_ITERATIONS;
+        int[] sorted = Arrays.copyOf(iterations, count);
+        Arrays.sort(sorted);
+        int best = sorted[0], bestRun = 0;
+        for (int i = 0, run = 1; i < count; i++, run++) {
+            if (i + 1 < count && sorted[i + 1] == sorted[i]) continue;
+            if (run >= bestRun) {
+                best = sorted[i];
+                bestRun = run;
+            }
+            run = 0;
+        }
+        return best;
+    }
+
+    // ---------- Index ----------
+
+    /** Inserts {@code row} and returns its slot, or the slot of an earlier row with the same name. */
+    private int probe(long fp, int row) {
+        for (int i = (int) (fp ^ (fp >>> 32)) & mask; ; i = (i + 1) & mask) {
+            if (slots[i] == 0) {
+                slots[i] = fp;
+                slotRows[i] = row;
+                return i;
+            }
+            if (slots[i] == fp && sameName(slotRows[i], row)) return i;
+        }
+    }
+
+    private boolean sameName(int a, int b) {
+        int la = nameOffsets[a + 1] - nameOffsets[a], lb = nameOffsets[b + 1] - nameOffsets[b];
+        if (la != lb) return false;
+        for (int i = 0; i < la; i++) if (names[nameOffsets[a] + i] != names[nameOffsets[b] + i]) return false;
+        return true;
+    }
+
+    /** Row of {@code user}, or -1. */
+    private int row(String user) {
+        byte[] b = user.getBytes(StandardCharsets.UTF_8);
+        long fp = fingerprint(b, 0, b.length);
+        for (int i = (int) (fp ^ (fp >>> 32)) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            if (slots[i] != fp) continue;
+            int row = slotRows[i], off = nameOffsets[row];
+            if (nameOffsets[row + 1] - off == b.length && Arrays.equals(names, off, off + b.length, b, 0, b.length)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /** FNV-1a 64 finalized with SplitMix64; never 0. */
+    private static long fingerprint(byte[] b, int from, int to) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = from; i < to; i++) h = (h ^ (b[i] & 0xFF)) * 0x100000001b3L;
+        h = Paper.mix(h);
+        return h == 0 ? 1 : h;
+    }
+
+    private String userAt(int row) {
+        return new String(names, nameOffsets[row], nameOffsets[row + 1] - nameOffsets[row], StandardCharsets.UTF_8);
+    }
+
+    int size() {
+        return count;
+    }
+
+    boolean contains(String user) {
+        return row(user) >= 0;
+    }
+
+    // ---------- Verification ----------
+
+    /** Checks a password on the calling thread; costs one PBKDF2 run even for unknown users. */
+    boolean verify(String user, char[] password) {
+        int row = user == null ? -1 : row(user);
+        byte[] secret = decoySecret;
+        int off = 0, iters = decoyIterations;
+        if (row >= 0) {
+            secret = secrets;
+            off = row * SECRET_BYTES;
+            iters = iterations[row];
+        }
+        byte[] salt = Arrays.copyOfRange(secret, off, off + SALT_BYTES);
+        byte[] expected = Arrays.copyOfRange(secret, off + SALT_BYTES, off + SECRET_BYTES);
+        boolean ok = MessageDigest.isEqual(hash(password, salt, iters), expected) && row >= 0;
+        (ok ? accepted : denied).incrementAndGet();
+        return ok;
+    }
+
+    /**
+     * Verifies on the login pool. The future fails with {@link RejectedExecutionException}
+     * when the queue is full, so callers can answer "busy, retry" straight away.
+     */
+    CompletableFuture<Boolean> verifyAsync(String user, String password) {
+        char[] pw = password.toCharArray();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return verify(user, pw);
+                } finally {
+                    Arrays.fill(pw, '\0');
+                }
+            }, verifiers);
+        } catch (RejectedExecutionException e) {
+            rejected.incrementAndGet();
+            CompletableFuture<Boolean> f = new CompletableFuture<>();
+            f.completeExceptionally(e);
+            return f;
+        }
+    }
+
+    long acceptedCount() {
+        return accepted.get();
+    }
+
+    long deniedCount() {
+        return denied.get();
+    }
+
+    long rejectedCount() {
+        return rejected.get();
+    }
+
+    int queued() {
+        return verifiers.getQueue().size();
+    }
+
+    static byte[] hash(char[] password, byte[] salt, int iterations) {
+        PBEKeySpec spec = new PBEKeySpec(password, salt, iterations, HASH_BYTES * 8);
+        try {
+            return PBKDF2.get().generateSecret(spec).getEncoded();
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        } finally {
+            spec.clearPassword();
+        }
+    }
+
+    // ---------- Loading ----------
+
+    static final class Builder {
+        private final ByteArrayBuilder names = new ByteArrayBuilder();
+        private final ByteArrayBuilder secrets = new ByteArrayBuilder();
+        private int[] nameOffsets = new int[1024];
+        private int[] iterations = new int[1024];
+        private int count;
+
+        /** Adds an already-hashed entry. */
+        Builder add(String user, int iters, byte[] salt, byte[] hash) {
+            if (salt.length != SALT_BYTES || hash.length != HASH_BYTES) {
+                throw new IllegalArgumentException("Bad salt or hash length for " + user);
+            }
+            if (count + 1 >= nameOffsets.length) {
+                nameOffsets = Arrays.copyOf(nameOffsets, nameOffsets.length * 2);
+                iterations = Arrays.copyOf(iterations, iterations.length * 2);
+            }
+            nameOffsets[count] = names.size();
+            names.add(user.getBytes(StandardCharsets.UTF_8));
+            secrets.add(salt);
+            secrets.add(hash);
+            iterations[count++] = iters;
+            return this;
+        }
+
+        /** Hashes {@code password} with a fresh salt and adds it. */
+        Builder addPassword(String user, String password, int iters, Random random) {
+            byte[] salt = new byte[SALT_BYTES];
+            random.nextBytes(salt);
+            return add(user, iters, salt, hash(password.toCharArray(), salt, iters));
+        }
+
+        CredentialStore build() {
+            return build(Runtime.getRuntime().availableProcessors(), DEFAULT_QUEUE);
+        }
+
+        CredentialStore build(int threads, int queue) {
+            nameOffsets[count] = names.size();
+            return new CredentialStore(count, names.toArray(), Arrays.copyOf(nameOffsets, count + 1),
+                    secrets.toArray(), Arrays.copyOf(iterations, count), threads, queue);
+        }
+    }
+
+    private static final class ByteArrayBuilder {
+        private byte[] buf = new byte[1 << 12];
+        private int size;
+
+        void add(byte[] b) {
+            if (size + b.length > buf.length) buf = Arrays.copyOf(buf, Math.max(buf.length * 2, size + b.length));
+            System.arraycopy(b, 0, buf, size, b.length);
+            size += b.length;
+        }
+
+        int size() {
+            return size;
+        }
+
+        byte[] toArray() {
+            return Arrays.copyOf(buf, size);
+        }
+    }
+
+    /** Reads a roster file ({@code user:iterations:salt:hash} per line, # comments). */
+    static CredentialStore load(Path file) throws IOException {
+        Builder b = new Builder();
+        Base64.Decoder b64 = Base64.getDecoder();
+        try (BufferedReader in = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            int lineNo = 0;
+            while ((line = in.readLine()) != null) {
+                lineNo++;
+                if (line.isEmpty() || line.startsWith("#")) continue;
+                int c3 = line.lastIndexOf(':'), c2 = line.lastIndexOf(':', c3 - 1), c1 = line.lastIndexOf(':', c2 - 1);
+                if (c1 <= 0) throw new IOException(file + ":" + lineNo + ": expected user:iterations:salt:hash");
+                try {
+                    b.add(line.substring(0, c1), Integer.parseInt(line.substring(c1 + 1, c2)),
+                            b64.decode(line.substring(c2 + 1, c3)), b64.decode(line.substring(c3 + 1)));
+                } catch (IllegalArgumentException e) {
+                    throw new IOException(file + ":" + lineNo + ": " + e.getMessage());
+                }
+            }
+        }
+        return b.build();
+    }
+
+    /** Hashes {@code user,password} lines into a roster file. */
+    static int writeRoster(Path passwords, Path roster, int iters) throws IOException {
+        SecureRandom random = new SecureRandom();
+        Base64.Encoder b64 = Base64.getEncoder();
+        int n = 0;
+        try (BufferedReader in = Files.newBufferedReader(passwords, StandardCharsets.UTF_8);
+             BufferedWriter out = Files.newBufferedWriter(roster, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = in.readLine()) != null) {
+                int comma = line.indexOf(',');
+                if (line.isEmpty() || line.startsWith("#") || comma <= 0) continue;
+                byte[] salt = new byte[SALT_BYTES];
+                random.nextBytes(salt);
+                byte[] hash = hash(line.substring(comma + 1).toCharArray(), salt, iters);
+                out.write(line.substring(0, comma) + ":" + iters + ":" + b64.encodeToString(salt) + ":" + b64.encodeToString(hash));
+                out.newLine();
+                n++;
+            }
+        }
+        return n;
+    }
+
+    private static final class Shared {
+        static final CredentialStore INSTANCE = openConfigured();
+
+        private static CredentialStore openConfigured() {
+            String path = System.getProperty("exam.roster");
+            if (path != null && !path.isEmpty()) {
+                // Never fall back to the demo accounts: admin/admin would open the admin endpoints.
+                try {
+                    return load(Paths.get(path));
+                } catch (IOException e) {
+                    throw new UncheckedIOException("Could not load roster " + path + ": " + e.getMessage(), e);
+                }
+            }
+            // Demo accounts only when no roster is configured.
+            SecureRandom random = new SecureRandom();
+            return new Builder()
+                    .addPassword("student", "123", DEFAULT_ITERATIONS, random)
+                    .addPassword("admin", "admin", DEFAULT_ITERATIONS, random)
+                    .build();
+        }
+    }
+
+    /**
+     * The roster from {@code -Dexam.roster}, or the demo accounts student/123 and admin/admin
+     * when none is configured. A configured roster that cannot be read fails the first call.
+     */
+    static CredentialStore shared() {
+        return Shared.INSTANCE;
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * {@code java exam.CredentialStore hash <user,password.csv> <roster> [iterations]} builds
+     * a roster; {@code java exam.CredentialStore bench <candidates> [seconds] [iterations]}
+     * measures logins per second against a synthetic roster.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length >= 3 && args[0].equals("hash")) {
+            int iters = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_ITERATIONS;
+            int n = writeRoster(Paths.get(args[1]), Paths.get(args[2]), iters);
+            System.out.printf("Wrote %,d candidates to %s%n", n, args[2]);
+            return;
+        }
+        if (args.length < 2 || !args[0].equals("bench")) {
+            System.err.println("Usage: java exam.CredentialStore hash <user,password.csv> <roster> [iterations]");
+            System.err.println("       java exam.CredentialStore bench <candidates> [seconds] [iterations]");
+            System.exit(2);
+        }
+        int candidates = Integer.parseInt(args[1]);
+        int seconds = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+        int iters = args.length > 3 ? Integer.parseInt(args[3]) : DEFAULT_ITERATIONS;
+
+        // Synthetic roster: hashing 100k entries up front would dominate, so all share one
+        // salt+hash; lookups and verification cost are the same as with distinct ones.
+        byte[] salt = new byte[SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        byte[] hash = hash("secret".toCharArray(), salt, iters);
+        Builder b = new Builder();
+        long t0 = System.nanoTime();
+        for (int i = 0; i < candidates; i++) b.add("candidate-" + i, iters, salt, hash);
+        CredentialStore store = b.build();
+        System.out.printf("Indexed %,d candidates in %.0f ms%n", candidates, (System.nanoTime() - t0) / 1e6);
+
+        LatencyHistogram latency = new LatencyHistogram("login");
+        AtomicLong ok = new AtomicLong(), busy = new AtomicLong();
+        long end = System.nanoTime() + seconds * 1_000_000_000L;
+        Random rnd = new Random(1);
+        int window = store.verifiers.getMaximumPoolSize() * 8; // keep the pool busy without deep queueing
+        Semaphore inFlight = new Semaphore(window);
+        long start = System.nanoTime();
+        while (System.nanoTime() < end) {
+            inFlight.acquire();
+            String user = "candidate-" + rnd.nextInt(candidates);
+            long began = System.nanoTime();
+            store.verifyAsync(user, "secret").whenComplete((good, err) -> {
+                if (err != null) busy.incrementAndGet();
+                else if (good) ok.incrementAndGet();
+                latency.recordSince(began);
+                inFlight.release();
+            });
+        }
+        inFlight.acquire(window);
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d logins in %.1f s = %,.0f logins/s on %d threads (%d iterations), %,d refused as busy%n",
+                ok.get(), secs, ok.get() / secs, store.verifiers.getMaximumPoolSize(), iters, busy.get());
+        System.out.printf("latency p50=%.1f ms p99=%.1f ms max=%.1f ms (queueing included)%n",
+                latency.valueAtPercentile(50) / 1e6, latency.valueAtPercentile(99) / 1e6, latency.max() / 1e6);
+    }
+}
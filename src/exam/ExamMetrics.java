@@ -0,0 +1,166 @@
+package exam;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Timing instrumentation for candidates and for the app itself: time spent on each
+ * question, navigation latency (click to question rendered, or the service call on the
+ * server), render latency and submit latency.
+ *
+ * Every measurement is recorded twice: into an always-on {@link LatencyHistogram}, and as
+ * a JFR event ({@code exam.*}, category "Exam") that costs next to nothing unless a
+ * recording is running, e.g. {@code -XX:StartFlightRecording=filename=exam.jfr}. With
+ * {@code -Dexam.metrics=<file>} the histograms are written to the file at exit.
+ */
+final class ExamMetrics {
+    static final LatencyHistogram TIME_ON_QUESTION = new LatencyHistogram("timeOnQuestion");
+    static final LatencyHistogram NAVIGATE = new LatencyHistogram("navigate");
+    static final LatencyHistogram RENDER = new LatencyHistogram("render");
+    static final LatencyHistogram SUBMIT = new LatencyHistogram("submit");
+    static final LatencyHistogram[] ALL = {TIME_ON_QUESTION, NAVIGATE, RENDER, SUBMIT};
+
+    private static final AtomicBoolean dumpInstalled = new AtomicBoolean();
+
+    private ExamMetrics() {
+    }
+
+    // ---------- Events ----------
+
+    @Name("exam.QuestionView")
+    @Label("Time on Question")
+    @Category("Exam")
+    @Description("A question on screen, from display until the candidate moves on or submits")
+    static final class QuestionView extends Event {
+        @Label("User") String user;
+        @Label("Subject") String subject;
+        @Label("Question") int index;
+        transient long startNanos;
+    }
+
+    @Name("exam.Navigate")
+    @Label("Navigate")
+    @Category("Exam")
+    @Description("Moving to another question, until it is rendered (desktop) or recorded (server)")
+    static final class Navigate extends Event {
+        @Label("User") String user;
+        @Label("Subject") String subject;
+        @Label("From") int from;
+        @Label("To") int to;
+        transient long startNanos;
+    }
+
+    @Name("exam.Submit")
+    @Label("Submit")
+    @Category("Exam")
+    @Description("Grading, journaling and showing the result of a submitted exam")
+    static final class Submit extends Event {
+        @Label("User") String user;
+        @Label("Subject") String subject;
+        @Label("Questions") int questions;
+        @Label("Score") int score;
+        transient long startNanos;
+    }
+
+    static QuestionView beginView(String user, ExamSession s, int index) {
+        QuestionView e = new QuestionView();
+        e.user = user;
+        e.subject = s.subjectName;
+        e.index = index;
+        e.startNanos = System.nanoTime();
+        e.begin();
+        return e;
+    }
+
+    /** Ends a view started by {@link #beginView}; null is ignored. */
+    static void endView(QuestionView e) {
+        if (e == null) return;
+        TIME_ON_QUESTION.recordSince(e.startNanos);
+        e.commit();
+    }
+
+    static Navigate beginNavigate(String user, ExamSession s, int from) {
+        Navigate e = new Navigate();
+        e.user = user;
+        e.subject = s.subjectName;
+        e.from = from;
+        e.startNanos = System.nanoTime();
+        e.begin();
+        return e;
+    }
+
+    static void endNavigate(Navigate e, int to) {
+        NAVIGATE.recordSince(e.startNanos);
+        e.to = to;
+        e.commit();
+    }
+
+    static Submit beginSubmit(String user, ExamSession s) {
+        Submit e = new Submit();
+        e.user = user;
+        e.subject = s.subjectName;
+        e.questions = s.questions.size();
+        e.startNanos = System.nanoTime();
+        e.begin();
+        return e;
+    }
+
+    static void endSubmit(Submit e, int score) {
+        SUBMIT.recordSince(e.startNanos);
+        e.score = score;
+        e.commit();
+    }
+
+    // ---------- Output ----------
+
+    /** Every histogram's percentile distribution in milliseconds. */
+    static String report() {
+        StringBuilder sb = new StringBuilder();
+        for (LatencyHistogram h : ALL) {
+            sb.append("# ").append(h.name).append(" (ms)\n");
+            h.writePercentiles(sb, 1e6);
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    /** {"name": {"count", "p50", "p99", "max"}} in milliseconds. */
+    static String summaryJson() {
+        StringBuilder sb = new StringBuilder("{");
+        for (LatencyHistogram h : ALL) {
+            if (sb.length() > 1) sb.append(',');
+            sb.append('"').append(h.name).append("\":{\"count\":").append(h.count())
+                    .append(String.format(Locale.ROOT, ",\"p50\":%.3f,\"p99\":%.3f,\"max\":%.3f}",
+                            h.valueAtPercentile(50) / 1e6, h.valueAtPercentile(99) / 1e6, h.max() / 1e6));
+        }
+        return sb.append('}').toString();
+    }
+
+    static void dump(Path file) throws IOException {
+        Files.write(file, report().getBytes(StandardCharsets.UTF_8));
+    }
+
+    /** Writes the histograms to {@code -Dexam.metrics} at exit, if set. Idempotent. */
+    static void installConfigured() {
+        String path = System.getProperty("exam.metrics");
+        if (path == null || path.isEmpty() || !dumpInstalled.compareAndSet(false, true)) return;
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                dump(Paths.get(path));
+            } catch (IOException e) {
+                System.err.println("Could not write metrics to " + path + ": " + e.getMessage());
+            }
+        }, "exam-metrics-dump"));
+    }
+}
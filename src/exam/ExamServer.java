@@ -0,0 +1,373 @@
+package exam;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.*;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.concurrent.*;
+
+/**
+ * Headless HTTP front end for {@link ExamService}. GET parameters are taken from the query
+ * string and POST parameters from a form-encoded body; any other method gets 405. Responses
+ * are small JSON documents.
+ *
+ *   POST /login      user, pass            -> {"token"}
+ *   GET  /subjects                         -> ["..."]
+ *   POST /start      token, subject [adaptive] -> current question (adaptive=true picks each
+ *                                          item from the answers so far; answers are final)
+ *   GET  /question   token                 -> current question
+ *   POST /answer     token, option [index] -> current question (option -1 clears)
+ *   POST /flag       token [index, flagged] -> current question (flagged=false unflags)
+ *   POST /navigate   token, delta | index  -> current question
+ *   POST /submit     token                 -> {"score", "total"[, "ability", "standardError"]}
+ *   POST /logout     token
+ *   GET  /metrics    token                 -> registry size, hottest lock stripes, latency percentiles
+ *                                          (admin only)
+ *   GET  /items      token, subject        -> live per-item statistics (admin only; picks are
+ *                                          per bank option, the key is never sent)
+ *   GET  /leaderboard token [subject, adaptive, k] -> top k, percentiles and the caller's own rank
+ *                                          (default: overall; adaptive=true for the ability boards)
+ *
+ * Each request runs on its own virtual thread when the JVM has them (JDK 21+), otherwise
+ * on a fixed platform-thread pool.
+ */
+class ExamServer {
+    private final ExamService service;
+    private final HttpServer http;
+    private final ExecutorService executor;
+
+    ExamServer(ExamService service, int port) throws IOException {
+        this.service = service;
+        this.http = HttpServer.create(new InetSocketAddress(port), 1024);
+        this.executor = newRequestExecutor();
+        http.setExecutor(executor);
+
+        route("POST", "/login", p -> "{\"token\":" + quote(service.login(p.get("user"), p.get("pass"))) + "}");
+        route("GET", "/subjects", p -> {
+            StringBuilder sb = new StringBuilder("[");
+            for (String s : QuestionBank.subjects()) {
+                if (sb.length() > 1) sb.append(',');
+                sb.append(quote(s));
+            }
+            return sb.append(']').toString();
+        });
+        route("POST", "/start", p -> {
+            service.start(p.get("token"), p.get("subject"), "true".equals(p.get("adaptive")));
+            return questionJson(p.get("token"));
+        });
+        route("GET", "/question", p -> questionJson(p.get("token")));
+        route("POST", "/answer", p -> {
+            String token = p.get("token");
+            ExamSession s = service.current(token);
+            int index = p.containsKey("index") ? intParam(p, "index") : s.currentIndex;
+            service.answer(token, index, intParam(p, "option"));
+            return questionJson(token);
+        });
+        route("POST", "/flag", p -> {
+            String token = p.get("token");
+            ExamSession s = service.current(token);
+            int index = p.containsKey("index") ? intParam(p, "index") : s.currentIndex;
+            service.flag(token, index, !"false".equals(p.get("flagged")));
+            return questionJson(token);
+        });
+        route("POST", "/navigate", p -> {
+            String token = p.get("token");
+            ExamSession s = service.current(token);
+            int index = p.containsKey("index") ? intParam(p, "index") : s.currentIndex + intParam(p, "delta");
+            service.navigate(token, index);
+            return questionJson(token);
+        });
+        route("POST", "/submit", p -> {
+            ExamSession s = service.submit(p.get("token"));
+            return "{\"subject\":" + quote(s.subjectName) + ",\"score\":" + s.score
+                    + ",\"total\":" + s.questions.size() + ability(s) + "}";
+        });
+        route("GET", "/metrics", p -> {
+            service.admin(p.get("token"));
+            StringBuilder sb = new StringBuilder("{\"candidates\":").append(service.activeCandidates())
+                    .append(",\"stripes\":").append(service.registry().stripeCount())
+                    .append(",\"hotStripes\":[");
+            int n = 0;
+            for (SessionRegistry.StripeStats st : service.registry().hottest(8)) {
+                if (n++ > 0) sb.append(',');
+                sb.append("{\"stripe\":").append(st.stripe).append(",\"size\":").append(st.size)
+                        .append(",\"acquisitions\":").append(st.acquisitions)
+                        .append(",\"contended\":").append(st.contended).append('}');
+            }
+            CredentialStore cs = service.credentials();
+            sb.append("],\"logins\":{\"accepted\":").append(cs.acceptedCount())
+                    .append(",\"denied\":").append(cs.deniedCount())
+                    .append(",\"refused\":").append(cs.rejectedCount())
+                    .append(",\"queued\":").append(cs.queued()).append('}');
+            return sb.append(",\"latencyMs\":").append(ExamMetrics.summaryJson()).append('}').toString();
+        });
+        route("GET", "/items", p -> {
+            service.admin(p.get("token"));
+            return itemsJson(p.get("subject"));
+        });
+        route("GET", "/leaderboard", p -> leaderboardJson(service.candidate(p.get("token")).user, p.get("subject"),
+                "true".equals(p.get("adaptive")) ? Leaderboard.Scale.ABILITY : Leaderboard.Scale.PERCENT_CORRECT,
+                p.containsKey("k") ? intParam(p, "k") : 10));
+        route("POST", "/logout", p -> {
+            service.logout(p.get("token"));
+            return "{}";
+        });
+    }
+
+    interface Endpoint {
+        String handle(Map<String, String> params);
+    }
+
+    /** Serves {@code path} for {@code method} only; other methods get 405. */
+    private void route(String method, String path, Endpoint endpoint) {
+        http.createContext(path, new Handler(method, endpoint));
+    }
+
+    void start() {
+        http.start();
+    }
+
+    void stop() {
+        http.stop(0);
+        executor.shutdown();
+    }
+
+    int port() {
+        return http.getAddress().getPort();
+    }
+
+    private String questionJson(String token) {
+        ExamService.Candidate c = service.candidate(token);
+        ExamSession s = service.current(token);
+        int i = s.currentIndex;
+        Question q = s.question(i);
+        StringBuilder sb = new StringBuilder(256);
+        sb.append("{\"subject\":").append(quote(s.subjectName))
+                .append(",\"index\":").append(i)
+                .append(",\"total\":").append(s.questions.size())
+                .append(",\"text\":").append(quote(q.text))
+                .append(",\"options\":[");
+        for (int k = 0; k < q.options.length; k++) {
+            if (k > 0) sb.append(',');
+            sb.append(quote(q.options[k]));
+        }
+        sb.append("],\"selected\":").append(s.selection(i))
+                .append(",\"flagged\":").append(s.sheet.isFlagged(i))
+                .append(",\"attempted\":").append(s.sheet.attemptedCount())
+                .append(",\"secondsLeft\":").append(s.secondsLeft())
+                .append(",\"submitted\":").append(c.submitted)
+                .append(ability(s))
+                .append('}');
+        return sb.toString();
+    }
+
+    /** Running ability estimate of an adaptive session, as extra JSON members; empty otherwise. */
+    private static String ability(ExamSession s) {
+        if (s.adaptive == null) return "";
+        return ",\"adaptive\":true,\"ability\":" + number(s.adaptive.theta())
+                + ",\"standardError\":" + number(s.adaptive.standardError())
+                + ",\"finished\":" + s.adaptive.finished();
+    }
+
+    private String itemsJson(String subject) {
+        if (subject == null) throw new ExamService.ServiceException(400, "Missing parameter: subject");
+        ItemAnalytics.SubjectItems items = service.analytics().subject(subject);
+        if (items == null) throw new ExamService.ServiceException(404, "No submissions for " + subject);
+        StringBuilder sb = new StringBuilder(128 + items.size() * 160);
+        sb.append("{\"subject\":").append(quote(subject))
+                .append(",\"candidates\":").append(items.candidates())
+                .append(",\"suspicious\":").append(items.suspicious(30))
+                .append(",\"items\":[");
+        for (int q = 0; q < items.size(); q++) {
+            if (q > 0) sb.append(',');
+            sb.append("{\"item\":").append(q)
+                    .append(",\"presented\":").append(items.presented(q))
+                    .append(",\"p\":").append(number(items.pValue(q)))
+                    .append(",\"attemptRate\":").append(number(items.attemptRate(q)))
+                    .append(",\"pointBiserial\":").append(number(items.pointBiserial(q)))
+                    .append(",\"itemRest\":").append(number(items.itemRest(q)))
+                    .append(",\"picks\":[");
+            for (int o = 0; o < 4; o++) {
+                if (o > 0) sb.append(',');
+                sb.append(items.picks(q, o));
+            }
+            sb.append("]}");
+        }
+        return sb.append("]}").toString();
+    }
+
+    /** A subject's board on {@code scale}, or the scale's overall board when {@code subject} is null. */
+    private String leaderboardJson(String user, String subject, Leaderboard.Scale scale, int k) {
+        Leaderboard leaderboard = service.leaderboard();
+        Leaderboard.Board board = subject == null ? leaderboard.overall(scale) : leaderboard.board(scale, subject);
+        if (board == null) throw new ExamService.ServiceException(404, "No submissions for " + subject);
+        if (k < 0 || k > 1000) throw new ExamService.ServiceException(400, "k must be 0..1000");
+        StringBuilder sb = new StringBuilder(128 + k * 64);
+        sb.append("{\"subject\":").append(subject == null ? "null" : quote(subject))
+                .append(",\"board\":").append(quote(board.name))
+                .append(",\"scale\":").append(scale == Leaderboard.Scale.ABILITY ? "\"ability\"" : "\"percentCorrect\"")
+                .append(",\"candidates\":").append(board.size())
+                .append(",\"maxPoints\":").append(Leaderboard.MAX_POINTS)
+                .append(",\"percentiles\":{");
+        int n = 0;
+        for (int pct : new int[]{25, 50, 75, 90, 99}) {
+            if (n++ > 0) sb.append(',');
+            sb.append("\"p").append(pct).append("\":").append(board.pointsAtPercentile(pct));
+        }
+        sb.append("},\"top\":[");
+        n = 0;
+        for (Leaderboard.Entry e : board.top(k)) {
+            if (n++ > 0) sb.append(',');
+            sb.append("{\"rank\":").append(board.rankOf(e.points))
+                    .append(",\"user\":").append(quote(e.user))
+                    .append(",\"points\":").append(e.points)
+                    .append(",\"value\":").append(number(scale.value(e.points))).append('}');
+        }
+        sb.append(']');
+        Leaderboard.Entry mine = board.entry(user);
+        if (mine != null) {
+            sb.append(",\"you\":{\"rank\":").append(board.rankOf(mine.points))
+                    .append(",\"points\":").append(mine.points)
+                    .append(",\"value\":").append(number(scale.value(mine.points)))
+                    .append(",\"percentileRank\":").append(number(board.percentileRank(mine.points))).append('}');
+        }
+        return sb.append('}').toString();
+    }
+
+    private static String number(double v) {
+        return Double.isNaN(v) ? "null" : String.format(Locale.ROOT, "%.4f", v);
+    }
+
+    private static int intParam(Map<String, String> p, String name) {
+        String v = p.get(name);
+        try {
+            return Integer.parseInt(v == null ? "" : v.trim());
+        } catch (NumberFormatException e) {
+            throw new ExamService.ServiceException(400, "Missing or bad parameter: " + name);
+        }
+    }
+
+    static String quote(String s) {
+        StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+        for (int i = 0; i < s.length(); i++) {
+            char c = s.charAt(i);
+            switch (c) {
+                case '"': sb.append("\\\""); break;
+                case '\\': sb.append("\\\\"); break;
+                case '\n': sb.append("\\n"); break;
+                case '\r': sb.append("\\r"); break;
+                case '\t': sb.append("\\t"); break;
+                default:
+                    if (c < 0x20) sb.append(String.format("\\u%04x", (int) c));
+                    else sb.append(c);
+            }
+        }
+        return sb.append('"').toString();
+    }
+
+    private static final class Handler implements HttpHandler {
+        private final String method;
+        private final Endpoint endpoint;
+
+        Handler(String method, Endpoint endpoint) {
+            this.method = method;
+            this.endpoint = endpoint;
+        }
+
+        @Override
+        public void handle(HttpExchange ex) throws IOException {
+            int status = 200;
+            String body;
+            try {
+                if (!method.equals(ex.getRequestMethod())) {
+                    ex.getResponseHeaders().set("Allow", method);
+                    throw new ExamService.ServiceException(405, "Use " + method + " for " + ex.getHttpContext().getPath());
+                }
+                body = endpoint.handle(params(ex));
+            } catch (ExamService.ServiceException e) {
+                status = e.status;
+                body = "{\"error\":" + quote(e.getMessage()) + "}";
+            } catch (RuntimeException e) {
+                status = 500;
+                body = "{\"error\":" + quote(String.valueOf(e)) + "}";
+            }
+            byte[] out = body.getBytes(StandardCharsets.UTF_8);
+            ex.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+            ex.sendResponseHeaders(status, out.length);
+            try (OutputStream os = ex.getResponseBody()) {
+                os.write(out);
+            }
+        }
+
+        /**
+         * GET parameters come from the query string; POST parameters from the body only, so
+         * passwords and tokens never end up in URLs and access logs.
+         */
+        private Map<String, String> params(HttpExchange ex) throws IOException {
+            Map<String, String> p = new HashMap<>();
+            if (!"POST".equals(method)) {
+                parse(ex.getRequestURI().getRawQuery(), p);
+                return p;
+            }
+            try (InputStream in = ex.getRequestBody()) {
+                ByteArrayOutputStream buf = new ByteArrayOutputStream();
+                byte[] b = new byte[1024];
+                for (int n; (n = in.read(b)) > 0; ) {
+                    buf.write(b, 0, n);
+                    if (buf.size() > 64 * 1024) throw new ExamService.ServiceException(413, "Request too large");
+                }
+                if (buf.size() > 0) parse(new String(buf.toByteArray(), StandardCharsets.UTF_8), p);
+            }
+            return p;
+        }
+
+        private static void parse(String query, Map<String, String> into) throws UnsupportedEncodingException {
+            if (query == null || query.isEmpty()) return;
+            for (String pair : query.split("&")) {
+                int eq = pair.indexOf('=');
+                String k = eq < 0 ? pair : pair.substring(0, eq);
+                String v = eq < 0 ? "" : pair.substring(eq + 1);
+                into.put(URLDecoder.decode(k, "UTF-8"), URLDecoder.decode(v, "UTF-8"));
+            }
+        }
+    }
+
+    /** Virtual-thread-per-task executor when available, otherwise a fixed platform pool. */
+    static ExecutorService newRequestExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            return Executors.newFixedThreadPool(Math.max(16, Runtime.getRuntime().availableProcessors() * 8), r -> {
+                Thread t = new Thread(r, "exam-http");
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ---------- Main ----------
+    public static void main(String[] args) throws IOException {
+        ExamMetrics.installConfigured();
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : 8080;
+        ExamService service;
+        java.nio.file.Path journalDir = AnswerJournal.configuredDir();
+        if (journalDir != null) {
+            AnswerJournal.Replayed recovered = AnswerJournal.checkpoint(journalDir);
+            service = new ExamService(ExamTimerService.shared(), AnswerJournal.openConfigured(journalDir));
+            service.recover(recovered);
+            System.out.println("Recovered " + recovered.size() + " sessions (" + recovered.open.size() + " open) from " + journalDir);
+        } else {
+            service = new ExamService();
+        }
+        ExamServer server = new ExamServer(service, port);
+        server.start();
+        System.out.println("Exam server listening on port " + server.port());
+    }
+}
@@ -0,0 +1,361 @@
+package exam;
+
+import java.io.IOException;
+import java.security.SecureRandom;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicReference;
+
+/**
+ * Headless exam engine: the same login / start / answer / navigate / submit flow as the
+ * Swing panels, for many candidates at once. Candidates are addressed by an opaque token
+ * handed out at login. Transport-independent; see {@link ExamServer} for the HTTP side.
+ */
+class ExamService {
+    static final int SECONDS_PER_QUESTION = 60;
+    static final int LOGIN_TIMEOUT_SECONDS = 30;
+    /** Users allowed to read item statistics and server metrics: {@code -Dexam.admins}, comma-separated. */
+    static final java.util.Set<String> ADMINS = java.util.Collections.unmodifiableSet(new java.util.HashSet<>(
+            java.util.Arrays.asList(System.getProperty("exam.admins", "admin").trim().split("\\s*,\\s*"))));
+
+    /** Failure with an HTTP-style status code so transports can map it directly. */
+    static final class ServiceException extends RuntimeException {
+        final int status;
+
+        ServiceException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    static final class Candidate {
+        final String user;
+        volatile ExamSession session;
+        volatile boolean submitted;
+        ExamTimerService.Timeout autoSubmit; // guarded by this
+        final AtomicReference<ExamMetrics.QuestionView> viewing = new AtomicReference<>();
+
+        Candidate(String user) {
+            this.user = user;
+        }
+    }
+
+    // Runs auto-submits handed off by the timing wheel; threads exit when idle.
+    private static final int AUTO_SUBMIT_THREADS = Math.max(2, Runtime.getRuntime().availableProcessors());
+    private static final ThreadPoolExecutor AUTO_SUBMIT = new ThreadPoolExecutor(AUTO_SUBMIT_THREADS, AUTO_SUBMIT_THREADS,
+            30, TimeUnit.SECONDS, new LinkedBlockingQueue<>(), r -> {
+                Thread t = new Thread(r, "exam-autosubmit");
+                t.setDaemon(true);
+                return t;
+            });
+
+    static {
+        AUTO_SUBMIT.allowCoreThreadTimeOut(true);
+    }
+
+    private final ConcurrentHashMap<String, String> userByToken = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<String, ExamTimerService.Timeout> tokenExpiry = new ConcurrentHashMap<>();
+    private final SessionRegistry<Candidate> candidates = new SessionRegistry<>();
+    private final SecureRandom random = new SecureRandom();
+    private final ExamTimerService timers;
+    private final AnswerJournal journal; // null when not journaling
+    private final ItemAnalytics analytics = new ItemAnalytics();
+    private final Leaderboard leaderboard = new Leaderboard();
+    private final CredentialStore credentials;
+    private final long tokenTtlMillis; // tokens last for the exam window, then expire
+
+    ExamService() {
+        this(ExamTimerService.shared(), null);
+    }
+
+    ExamService(ExamTimerService timers, AnswerJournal journal) {
+        this(timers, journal, CredentialStore.shared(), Long.getLong("exam.window.minutes", 240) * 60_000L);
+    }
+
+    ExamService(ExamTimerService timers, AnswerJournal journal, CredentialStore credentials, long tokenTtlMillis) {
+        this.timers = timers;
+        this.journal = journal;
+        this.credentials = credentials;
+        this.tokenTtlMillis = tokenTtlMillis;
+    }
+
+    /**
+     * Reinstates sessions replayed from the journal: every submitted one counts towards the
+     * analytics and leaderboard, and each candidate resumes their latest. Unfinished ones get
+     * their auto-submit rescheduled (and are graded right away if the deadline passed while
+     * we were down).
+     */
+    void recover(AnswerJournal.Replayed replayed) {
+        // Submitted first: a user's open session, if any, was started after all of them.
+        java.util.List<AnswerJournal.Recovered> sessions = new java.util.ArrayList<>(replayed.submitted);
+        sessions.addAll(replayed.open.values());
+        for (AnswerJournal.Recovered r : sessions) {
+            ExamSession s;
+            try {
+                s = r.toSession();
+            } catch (RuntimeException e) {
+                System.err.println("Skipping unrecoverable session of " + r.user + ": " + e);
+                continue;
+            }
+            Candidate c = candidates.computeIfAbsent(r.user, Candidate::new);
+            synchronized (c) {
+                c.session = s;
+                c.submitted = r.submitted;
+                if (r.submitted) {
+                    analytics.add(CohortGrader.Submission.of(c.user, s));
+                    leaderboard.record(c.user, s);
+                } else {
+                    view(c, s, s.currentIndex);
+                }
+                if (!r.submitted) scheduleAutoSubmit(c, s);
+            }
+        }
+    }
+
+    private void journal(AnswerJournal.Action action) {
+        if (journal == null) return;
+        try {
+            action.apply(journal);
+        } catch (IOException e) {
+            throw new ServiceException(503, "Answer journal unavailable: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Returns a session token valid for the exam window, or throws 401 on bad credentials,
+     * 503 when the login pool is saturated and 500 if verification itself fails. The password check runs on the credential
+     * store's pool; this thread only waits for it.
+     */
+    String login(String user, String pass) {
+        if (user == null || pass == null) throw new ServiceException(401, "Invalid credentials");
+        boolean ok;
+        try {
+            ok = credentials.verifyAsync(user.trim(), pass).get(LOGIN_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RejectedExecutionException) {
+                throw new ServiceException(503, "Too many logins in progress, retry shortly");
+            }
+            // A failure inside verification is a bug, not load: report it as one.
+            System.err.println("Login verification failed: " + e.getCause());
+            throw new ServiceException(500, "Login failed");
+        } catch (TimeoutException e) {
+            throw new ServiceException(503, "Login timed out, retry shortly");
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ServiceException(503, "Login interrupted");
+        }
+        if (!ok) throw new ServiceException(401, "Invalid credentials");
+        byte[] b = new byte[16];
+        random.nextBytes(b);
+        StringBuilder token = new StringBuilder(32);
+        for (byte x : b) token.append(Character.forDigit((x >> 4) & 0xF, 16)).append(Character.forDigit(x & 0xF, 16));
+        // Logging in again (another tab, a retry) resumes the same candidate.
+        candidates.computeIfAbsent(user.trim(), Candidate::new);
+        String t = token.toString();
+        userByToken.put(t, user.trim());
+        tokenExpiry.put(t, timers.schedule(System.currentTimeMillis() + tokenTtlMillis, () -> {
+            userByToken.remove(t);
+            tokenExpiry.remove(t);
+        }));
+        return t;
+    }
+
+    /** Revokes the token now and drops its expiry from the wheel. */
+    void logout(String token) {
+        if (token == null) return;
+        userByToken.remove(token);
+        ExamTimerService.Timeout expiry = tokenExpiry.remove(token);
+        if (expiry != null) expiry.cancel();
+    }
+
+    Candidate candidate(String token) {
+        String user = token == null ? null : userByToken.get(token);
+        Candidate c = user == null ? null : candidates.get(user);
+        if (c == null) throw new ServiceException(401, "Unknown or expired token");
+        return c;
+    }
+
+    /** The token's candidate, or 403 unless the user is one of {@link #ADMINS}. */
+    Candidate admin(String token) {
+        Candidate c = candidate(token);
+        if (!ADMINS.contains(c.user)) throw new ServiceException(403, "Administrator login required");
+        return c;
+    }
+
+    ExamSession start(String token, String subject) {
+        return start(token, subject, false);
+    }
+
+    /** Starts a fixed paper, or an adaptive exam that picks each item from the answers so far. */
+    ExamSession start(String token, String subject, boolean adaptive) {
+        Candidate c = candidate(token);
+        if (subject == null || !QuestionBank.subjects().contains(subject)) {
+            throw new ServiceException(404, "Unknown subject: " + subject);
+        }
+        ExamSession s = adaptive ? ExamSession.createAdaptive(c.user, subject) : ExamSession.create(c.user, subject);
+        if (s.questions.isEmpty()) throw new ServiceException(404, "No questions for subject: " + subject);
+        s.deadlineMillis = System.currentTimeMillis() + s.length() * SECONDS_PER_QUESTION * 1000L;
+        synchronized (c) {
+            journal(j -> j.start(c.user, s));
+            if (c.autoSubmit != null) c.autoSubmit.cancel();
+            c.session = s;
+            c.submitted = false;
+            view(c, s, 0);
+            scheduleAutoSubmit(c, s);
+        }
+        return s;
+    }
+
+    /**
+     * Submits {@code s} at its deadline unless the candidate moved on. Grading and the journal
+     * write run on {@link #AUTO_SUBMIT}, so a burst of deadlines never stalls the wheel thread.
+     * Caller holds {@code c}.
+     */
+    private void scheduleAutoSubmit(Candidate c, ExamSession s) {
+        c.autoSubmit = timers.schedule(s.deadlineMillis, () -> AUTO_SUBMIT.execute(() -> submit(c, s)));
+    }
+
+    /** The candidate's running session; auto-submits it if the time is up. */
+    ExamSession current(String token) {
+        return current(candidate(token));
+    }
+
+    private ExamSession current(Candidate c) {
+        ExamSession s = c.session;
+        if (s == null) throw new ServiceException(409, "No exam started");
+        // The wheel fires within one tick of the deadline; close the gap for requests
+        // that arrive in between. Only this session is submitted, even if another starts meanwhile.
+        if (!c.submitted && s.secondsLeft() <= 0) submit(c, s);
+        return s;
+    }
+
+    /**
+     * Journals and applies the answer under the candidate's lock, so the journal sees
+     * concurrent answers in the order they took effect and nothing after the submit.
+     */
+    void answer(String token, int index, int option) {
+        Candidate c = candidate(token);
+        ExamSession s = current(c);
+        checkOpen(c);
+        if (index < 0 || index >= s.questions.size()) throw new ServiceException(400, "No question " + index);
+        if (option < -1 || option >= 4) throw new ServiceException(400, "No option " + option);
+        if (s.adaptive != null) {
+            answerAdaptive(c, s, index, option);
+            return;
+        }
+        synchronized (c) {
+            checkOpen(c);
+            // Written ahead of the in-memory update so an acknowledged answer is never lost.
+            if (s.selection(index) != option) journal(j -> j.answer(c.user, index, option));
+            s.select(index, option);
+        }
+    }
+
+    /**
+     * Adaptive answers are final and each one chooses the next item, so they are taken one
+     * at a time; the exam is submitted as soon as the test stops.
+     */
+    private void answerAdaptive(Candidate c, ExamSession s, int index, int option) {
+        synchronized (c) {
+            checkOpen(c);
+            if (option >= 0 && s.selection(index) == option) return; // retry of the same answer
+            if (option < 0 || index != s.adaptive.answered()) {
+                throw new ServiceException(409, "Question " + index + " is not awaiting an answer; adaptive answers are final");
+            }
+            journal(j -> j.answer(c.user, index, option));
+            s.select(index, option);
+            if (s.adaptive.finished()) {
+                submit(c, s);
+            } else {
+                journal(j -> j.navigate(c.user, index + 1));
+                s.currentIndex = index + 1;
+                view(c, s, index + 1);
+            }
+        }
+    }
+
+    void flag(String token, int index, boolean flagged) {
+        Candidate c = candidate(token);
+        ExamSession s = current(c);
+        checkOpen(c);
+        if (index < 0 || index >= s.questions.size()) throw new ServiceException(400, "No question " + index);
+        s.sheet.setFlagged(index, flagged);
+    }
+
+    ExamSession navigate(String token, int index) {
+        Candidate c = candidate(token);
+        ExamSession s = current(c);
+        checkOpen(c);
+        if (index < 0 || index >= s.questions.size()) throw new ServiceException(400, "No question " + index);
+        ExamMetrics.Navigate nav = ExamMetrics.beginNavigate(c.user, s, s.currentIndex);
+        synchronized (c) {
+            checkOpen(c);
+            journal(j -> j.navigate(c.user, index));
+            s.currentIndex = index;
+            view(c, s, index);
+        }
+        ExamMetrics.endNavigate(nav, index);
+        return s;
+    }
+
+    ExamSession submit(String token) {
+        Candidate c = candidate(token);
+        ExamSession s = c.session;
+        if (s == null) throw new ServiceException(409, "No exam started");
+        submit(c, s);
+        return s;
+    }
+
+    /**
+     * Grades and journals {@code s} unless it is already submitted or the candidate has since
+     * started another session; both are checked under the candidate's lock.
+     */
+    private void submit(Candidate c, ExamSession s) {
+        synchronized (c) {
+            if (c.submitted || c.session != s) return;
+            ExamMetrics.Submit timing = ExamMetrics.beginSubmit(c.user, s);
+            if (c.autoSubmit != null) c.autoSubmit.cancel();
+            s.evaluate();
+            journal(j -> j.submit(c.user, s.score));
+            c.submitted = true;
+            ExamMetrics.endView(c.viewing.getAndSet(null));
+            ExamMetrics.endSubmit(timing, s.score);
+        }
+        analytics.add(CohortGrader.Submission.of(c.user, s));
+        leaderboard.record(c.user, s);
+    }
+
+    /** Ends the candidate's current time-on-question measurement and starts one for {@code index}. */
+    private static void view(Candidate c, ExamSession s, int index) {
+        ExamMetrics.endView(c.viewing.getAndSet(ExamMetrics.beginView(c.user, s, index)));
+    }
+
+    private static void checkOpen(Candidate c) {
+        if (c.submitted) throw new ServiceException(409, "Exam already submitted");
+    }
+
+    int activeCandidates() {
+        return candidates.size();
+    }
+
+    ItemAnalytics analytics() {
+        return analytics;
+    }
+
+    Leaderboard leaderboard() {
+        return leaderboard;
+    }
+
+    CredentialStore credentials() {
+        return credentials;
+    }
+
+    SessionRegistry<Candidate> registry() {
+        return candidates;
+    }
+}
@@ -0,0 +1,134 @@
+package exam;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+class ExamSession {
+    final String subjectName;
+    final Paper paper;
+    final java.util.List<Question> questions; // view of the paper in presentation order
+    // Packed answers plus attempted/flagged bits. Updated with CAS so concurrent requests
+    // for the same candidate (double-clicks, retries) never need a lock.
+    final AnswerSheet sheet;
+    // Adaptive mode: items are chosen one at a time from the running ability estimate, and
+    // questions lists only those administered so far. Null for a fixed paper.
+    final AdaptiveTest adaptive;
+    private volatile AnswerKey key;
+    volatile int currentIndex = 0;
+    volatile int score = 0;
+    volatile long deadlineMillis = 0; // absolute wall-clock deadline, 0 until started
+
+    ExamSession(Paper paper) {
+        this(paper, null);
+    }
+
+    ExamSession(Paper paper, AdaptiveTest adaptive) {
+        this.subjectName = paper.subject;
+        this.paper = paper;
+        this.adaptive = adaptive;
+        this.questions = adaptive == null ? paper.asList() : new Administered();
+        this.sheet = new AnswerSheet(adaptive == null ? paper.size() : adaptive.maxLength());
+    }
+
+    /** Most questions the session can ask: the paper size, or the adaptive test's maximum length. */
+    int length() {
+        return sheet.size();
+    }
+
+    /** Bank index of the item at a paper position. */
+    int item(int index) {
+        return adaptive == null ? paper.item(index) : adaptive.item(index);
+    }
+
+    /** Question at a paper position, options in paper order. */
+    Question question(int index) {
+        return adaptive == null ? paper.question(index) : paper.itemQuestion(adaptive.item(index));
+    }
+
+    /** Bank option shown as option {@code shown} at a paper position. */
+    int bankOption(int index, int shown) {
+        return paper.itemOption(item(index), shown);
+    }
+
+    /** The selected option, or -1 if not attempted. */
+    int selection(int index) {
+        return sheet.get(index);
+    }
+
+    /**
+     * Records an answer (-1 clears). Returns false if it was already the current answer.
+     * In adaptive mode only the pending question can be answered, once, and answering it
+     * administers the next one.
+     */
+    boolean select(int index, int option) {
+        if (adaptive == null) return sheet.set(index, option);
+        synchronized (adaptive) {
+            if (option >= 0 && sheet.get(index) == option) return false;
+            if (option < 0 || index != adaptive.answered() || adaptive.finished()) {
+                throw new IllegalStateException("Question " + (index + 1) + " is not awaiting an answer; adaptive answers are final");
+            }
+            sheet.set(index, option);
+            adaptive.respond(option == question(index).correctIndex);
+            return true;
+        }
+    }
+
+    AnswerKey answerKey() {
+        if (adaptive != null) {
+            // Grows with every administered item, so it is not cached.
+            int[] correct = new int[length()];
+            for (int i = 0; i < questions.size(); i++) correct[i] = questions.get(i).correctIndex;
+            return new AnswerKey(correct);
+        }
+        AnswerKey k = key;
+        if (k == null) key = k = AnswerKey.of(questions);
+        return k;
+    }
+
+    /** Seconds until the deadline, rounded up; computed on demand rather than ticked. */
+    int secondsLeft() {
+        long ms = deadlineMillis - System.currentTimeMillis();
+        return ms <= 0 ? 0 : (int) ((ms + 999) / 1000);
+    }
+
+    /** New session on the candidate's seeded paper for the subject. */
+    static ExamSession create(String user, String subjectName) {
+        return new ExamSession(PaperGenerator.shared().generate(user, subjectName));
+    }
+
+    /** New adaptive session of at most {@link AdaptiveTest#DEFAULT_LENGTH} items; the seed also picks option orders. */
+    static ExamSession createAdaptive(String user, String subjectName) {
+        return adaptive(PaperGenerator.shared().generate(user, subjectName), AdaptiveTest.DEFAULT_LENGTH);
+    }
+
+    /** Session on a paper recorded earlier, e.g. replayed from a journal. */
+    static ExamSession restore(String subjectName, long seed) {
+        return new ExamSession(PaperGenerator.paper(subjectName, seed));
+    }
+
+    /** Adaptive session recorded earlier; replaying its answers in order re-administers the same items. */
+    static ExamSession restoreAdaptive(String subjectName, long seed, int length) {
+        return adaptive(PaperGenerator.paper(subjectName, seed), length);
+    }
+
+    private static ExamSession adaptive(Paper paper, int length) {
+        return new ExamSession(paper, new AdaptiveTest(AdaptivePool.forSubject(paper.subject), paper.seed, length));
+    }
+
+    void evaluate() {
+        this.score = sheet.score(answerKey());
+    }
+
+    /** Administered items of an adaptive session in the order they were asked. */
+    private final class Administered extends AbstractList<Question> implements RandomAccess {
+        @Override
+        public Question get(int index) {
+            return question(index);
+        }
+
+        @Override
+        public int size() {
+            return adaptive.administered();
+        }
+    }
+}
@@ -0,0 +1,164 @@
+package exam;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Hashed timing wheel that runs every exam countdown on one daemon thread.
+ *
+ * Sessions keep an absolute deadline and compute the time left on demand, so nothing
+ * ticks per session. The wheel only holds one entry per session for the auto-submit; each
+ * tick looks at a single bucket, so the work per tick is bounded by that bucket's
+ * occupancy (about sessions / wheel size) rather than by the number of sessions.
+ *
+ * Tasks run on the wheel thread and must be short; hand off to another thread (e.g. the
+ * EDT) for anything more. A task fires at most once, and never after a successful cancel.
+ */
+final class ExamTimerService {
+    interface Timeout {
+        /** Returns true if this call prevented the task from running. */
+        boolean cancel();
+
+        boolean isExpired();
+    }
+
+    private static final int PENDING = 0, CANCELLED = 1, EXPIRED = 2;
+
+    private static final class Entry implements Timeout {
+        final long deadlineTick;
+        final Runnable task;
+        final AtomicInteger state = new AtomicInteger(PENDING);
+        long remainingRounds;
+        Entry prev, next;
+
+        Entry(long deadlineTick, Runnable task) {
+            this.deadlineTick = deadlineTick;
+            this.task = task;
+        }
+
+        @Override
+        public boolean cancel() {
+            return state.compareAndSet(PENDING, CANCELLED);
+        }
+
+        @Override
+        public boolean isExpired() {
+            return state.get() == EXPIRED;
+        }
+    }
+
+    /** Doubly linked so entries can be unlinked in O(1); only touched by the wheel thread. */
+    private static final class Bucket {
+        Entry head, tail;
+
+        void add(Entry e) {
+            if (head == null) {
+                head = tail = e;
+            } else {
+                tail.next = e;
+                e.prev = tail;
+                tail = e;
+            }
+        }
+
+        void remove(Entry e) {
+            if (e.prev != null) e.prev.next = e.next; else head = e.next;
+            if (e.next != null) e.next.prev = e.prev; else tail = e.prev;
+            e.prev = e.next = null;
+        }
+    }
+
+    private final long tickNanos;
+    private final Bucket[] wheel;
+    private final int mask;
+    private final long startNanos = System.nanoTime();
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final Thread worker;
+    private volatile boolean running = true;
+    private long tick; // wheel thread only
+
+    ExamTimerService(long tickMillis, int wheelSize) {
+        if (tickMillis <= 0) throw new IllegalArgumentException("tickMillis must be positive");
+        int n = Integer.highestOneBit(Math.max(2, wheelSize - 1)) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMillis);
+        this.wheel = new Bucket[n];
+        this.mask = n - 1;
+        for (int i = 0; i < n; i++) wheel[i] = new Bucket();
+        this.worker = new Thread(this::run, "exam-timer");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    private static final class Shared {
+        // 250 ms resolution, 4096 buckets: one revolution is about 17 minutes.
+        static final ExamTimerService INSTANCE = new ExamTimerService(250, 4096);
+    }
+
+    static ExamTimerService shared() {
+        return Shared.INSTANCE;
+    }
+
+    /** Runs {@code task} once at the wall-clock time {@code deadlineMillis}. */
+    Timeout schedule(long deadlineMillis, Runnable task) {
+        long delayNanos = TimeUnit.MILLISECONDS.toNanos(Math.max(0, deadlineMillis - System.currentTimeMillis()));
+        long deadlineTick = (System.nanoTime() - startNanos + delayNanos + tickNanos - 1) / tickNanos;
+        Entry e = new Entry(deadlineTick, task);
+        pending.add(e);
+        return e;
+    }
+
+    void stop() {
+        running = false;
+        worker.interrupt();
+    }
+
+    private void run() {
+        while (running) {
+            long sleep = startNanos + (tick + 1) * tickNanos - System.nanoTime();
+            if (sleep > 0) {
+                try {
+                    TimeUnit.NANOSECONDS.sleep(sleep);
+                } catch (InterruptedException e) {
+                    if (!running) return;
+                }
+                continue;
+            }
+            transferPending();
+            expire(wheel[(int) (tick & mask)]);
+            tick++;
+        }
+    }
+
+    private void transferPending() {
+        for (Entry e; (e = pending.poll()) != null; ) {
+            if (e.state.get() != PENDING) continue;
+            long at = Math.max(e.deadlineTick, tick);
+            e.remainingRounds = (at - tick) / wheel.length;
+            wheel[(int) (at & mask)].add(e);
+        }
+    }
+
+    private void expire(Bucket b) {
+        Entry e = b.head;
+        while (e != null) {
+            Entry next = e.next;
+            if (e.state.get() == CANCELLED) {
+                b.remove(e);
+            } else if (e.remainingRounds <= 0) {
+                b.remove(e);
+                if (e.state.compareAndSet(PENDING, EXPIRED)) {
+                    try {
+                        e.task.run();
+                    } catch (Throwable t) {
+                        System.err.println("Exam timer task failed: " + t);
+                    }
+                }
+            } else {
+                e.remainingRounds--;
+            }
+            e = next;
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package exam;
+
+import java.util.Arrays;
+
+/** Growable array of ints with its backing array exposed, for id lists built once and scanned often. */
+final class IntList {
+    int[] data = new int[16];
+    int size;
+
+    void add(int v) {
+        if (size == data.length) data = Arrays.copyOf(data, size * 2);
+        data[size++] = v;
+    }
+}
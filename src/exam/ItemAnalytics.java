@@ -0,0 +1,233 @@
+package exam;
+
+import java.nio.file.Paths;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live classical item statistics, updated as each submission arrives so broken items can
+ * be spotted while an exam window is still open.
+ *
+ * Per subject, every item keeps a row of counters in one {@link AtomicLongArray}: attempts,
+ * correct answers, picks per option and the sum of total scores of the candidates who got
+ * it right. With the subject's candidate count and score sum and sum of squares, that is
+ * enough to answer p-value, attempt rate, distractor shares and point-biserial
+ * discrimination in O(1) without revisiting past submissions. Queries taken while
+ * submissions are being added may see the in-flight ones partly counted.
+ *
+ * Adaptive exams present only some items, so rates are taken over the candidates an item
+ * was presented to: every full paper, plus a per-item count of partial ones. Their totals
+ * are not comparable with full-paper scores, so discrimination uses full papers only.
+ */
+final class ItemAnalytics {
+    private static final int ATTEMPTS = 0, CORRECT = 1, OPTIONS = 2, PRESENTED = 6, // all submissions
+            CORRECT_ON_PAPER = 7, SUM_IF_CORRECT = 8, // full papers only
+            STRIDE = 9;
+
+    /** Counters for one subject, indexed in bank order. */
+    static final class SubjectItems {
+        final String subject;
+        final AnswerKey key;
+        private final AtomicLongArray counters;
+        private final AtomicLong candidates = new AtomicLong();
+        private final AtomicLong papers = new AtomicLong(); // full papers; their score sum and squares follow
+        private final AtomicLong scoreSum = new AtomicLong();
+        private final AtomicLong scoreSquares = new AtomicLong();
+
+        SubjectItems(String subject, AnswerKey key) {
+            this.subject = subject;
+            this.key = key;
+            this.counters = new AtomicLongArray(key.size() * STRIDE);
+        }
+
+        int size() {
+            return key.size();
+        }
+
+        void add(CohortGrader.Submission s) {
+            AnswerSheet sheet = s.sheet;
+            boolean paper = s.presented == null;
+            int score = paper ? sheet.score(key) : 0;
+            for (int i = 0; i < s.length(); i++) {
+                int q = s.item(i), row = q * STRIDE;
+                if (!paper) counters.incrementAndGet(row + PRESENTED);
+                int sel = sheet.get(q);
+                if (sel < 0) continue;
+                counters.incrementAndGet(row + ATTEMPTS);
+                counters.incrementAndGet(row + OPTIONS + sel);
+                if (sel == key.correct(q)) {
+                    counters.incrementAndGet(row + CORRECT);
+                    if (paper) {
+                        counters.incrementAndGet(row + CORRECT_ON_PAPER);
+                        counters.addAndGet(row + SUM_IF_CORRECT, score);
+                    }
+                }
+            }
+            // Totals last, so a concurrent reader never sees more candidates than item counts.
+            if (paper) {
+                scoreSum.addAndGet(score);
+                scoreSquares.addAndGet((long) score * score);
+                papers.incrementAndGet();
+            }
+            candidates.incrementAndGet();
+        }
+
+        long candidates() {
+            return candidates.get();
+        }
+
+        /** Candidates the item was presented to. */
+        long presented(int q) {
+            return papers.get() + counters.get(q * STRIDE + PRESENTED);
+        }
+
+        long attempts(int q) {
+            return counters.get(q * STRIDE + ATTEMPTS);
+        }
+
+        long correct(int q) {
+            return counters.get(q * STRIDE + CORRECT);
+        }
+
+        long picks(int q, int option) {
+            return counters.get(q * STRIDE + OPTIONS + option);
+        }
+
+        /** Share of the candidates shown the item who answered it correctly (unattempted counts as wrong). */
+        double pValue(int q) {
+            long n = presented(q);
+            return n == 0 ? Double.NaN : (double) correct(q) / n;
+        }
+
+        double attemptRate(int q) {
+            long n = presented(q);
+            return n == 0 ? Double.NaN : (double) attempts(q) / n;
+        }
+
+        /** Share of the attempts at item {@code q} that picked {@code option}. */
+        double pickRate(int q, int option) {
+            long a = attempts(q);
+            return a == 0 ? Double.NaN : (double) picks(q, option) / a;
+        }
+
+        /**
+         * Correlation between getting the item right and the total score on full papers,
+         * (M1 - M0) / s * sqrt(p q). NaN until both groups are non-empty and scores vary.
+         */
+        double pointBiserial(int q) {
+            long n = papers.get(), n1 = counters.get(q * STRIDE + CORRECT_ON_PAPER), n0 = n - n1;
+            if (n1 == 0 || n0 <= 0) return Double.NaN;
+            double sum = scoreSum.get(), sumIfCorrect = counters.get(q * STRIDE + SUM_IF_CORRECT);
+            double mean = sum / n;
+            double var = scoreSquares.get() / (double) n - mean * mean;
+            if (var <= 0) return Double.NaN;
+            double m1 = sumIfCorrect / n1, m0 = (sum - sumIfCorrect) / n0;
+            double p = (double) n1 / n;
+            return (m1 - m0) / Math.sqrt(var) * Math.sqrt(p * (1 - p));
+        }
+
+        /**
+         * Item-rest correlation: like {@link #pointBiserial} but against the score on the
+         * other items, so the item does not correlate with itself. Preferred for short papers.
+         */
+        double itemRest(int q) {
+            long n = papers.get(), n1 = counters.get(q * STRIDE + CORRECT_ON_PAPER);
+            if (n1 == 0 || n1 >= n) return Double.NaN;
+            double sum = scoreSum.get(), sumIfCorrect = counters.get(q * STRIDE + SUM_IF_CORRECT);
+            double mean = sum / n, p = (double) n1 / n;
+            double varTotal = scoreSquares.get() / (double) n - mean * mean;
+            double cov = sumIfCorrect / n - mean * p;  // cov(total, item)
+            double varItem = p * (1 - p);
+            double varRest = varTotal + varItem - 2 * cov;
+            if (varRest <= 0) return Double.NaN;
+            return (cov - varItem) / Math.sqrt(varItem * varRest);
+        }
+
+        /**
+         * Items that look broken once each has {@code minAttempts}: negative discrimination
+         * (strong candidates get it wrong more often), a distractor picked more often than
+         * the key, or almost nobody answering it correctly.
+         */
+        java.util.List<Integer> suspicious(long minAttempts) {
+            java.util.List<Integer> out = new ArrayList<>();
+            for (int q = 0; q < size(); q++) {
+                if (attempts(q) < minAttempts) continue;
+                double r = itemRest(q);
+                boolean distractorWins = false;
+                for (int o = 0; o < 4; o++) {
+                    if (o != key.correct(q) && picks(q, o) > picks(q, key.correct(q))) distractorWins = true;
+                }
+                if ((!Double.isNaN(r) && r < 0) || distractorWins || pValue(q) < 0.1) out.add(q);
+            }
+            return out;
+        }
+    }
+
+    private final ConcurrentHashMap<String, SubjectItems> subjects = new ConcurrentHashMap<>();
+    private final AtomicLong mismatched = new AtomicLong();
+
+    /** Counts one submission (answers in bank order); ignored if the bank has since changed size. */
+    void add(CohortGrader.Submission s) {
+        SubjectItems items = subjects.computeIfAbsent(s.subject,
+                subject -> new SubjectItems(subject, QuestionBank.answerKey(subject)));
+        if (items.size() != s.sheet.size()) {
+            mismatched.incrementAndGet();
+            return;
+        }
+        items.add(s);
+    }
+
+    /** Statistics for a subject, or null if nothing was submitted for it yet. */
+    SubjectItems subject(String subject) {
+        return subjects.get(subject);
+    }
+
+    Set<String> subjects() {
+        return Collections.unmodifiableSet(subjects.keySet());
+    }
+
+    long mismatched() {
+        return mismatched.get();
+    }
+
+    void print(java.io.PrintStream out, long minAttempts) {
+        for (String name : new TreeSet<>(subjects.keySet())) {
+            SubjectItems s = subjects.get(name);
+            java.util.List<Question> qs = QuestionBank.view(name);
+            java.util.List<Integer> bad = s.suspicious(minAttempts);
+            out.printf("%s: %,d candidates, %d of %d items suspicious%n", name, s.candidates(), bad.size(), s.size());
+            for (int q : bad) {
+                out.printf("  #%d p=%.2f attempted=%.2f r=%.2f picks=%.2f/%.2f/%.2f/%.2f key=%c  %s%n",
+                        q, s.pValue(q), s.attemptRate(q), s.itemRest(q), s.pickRate(q, 0), s.pickRate(q, 1),
+                        s.pickRate(q, 2), s.pickRate(q, 3), (char) ('A' + s.key.correct(q)), qs.get(q).text);
+            }
+        }
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * Feeds a journal's submissions, or a synthetic cohort, through the analytics and lists
+     * suspicious items: {@code java exam.ItemAnalytics --journal <dir> | --synthetic <n>}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length != 2 || !(args[0].equals("--journal") || args[0].equals("--synthetic"))) {
+            System.err.println("Usage: java exam.ItemAnalytics --journal <dir> | --synthetic <n>");
+            System.exit(2);
+        }
+        Iterator<CohortGrader.Submission> cohort = args[0].equals("--journal")
+                ? CohortGrader.journalCohort(Paths.get(args[1]))
+                : CohortGrader.syntheticCohort(Integer.parseInt(args[1]));
+        ItemAnalytics analytics = new ItemAnalytics();
+        long n = 0, start = System.nanoTime();
+        while (cohort.hasNext()) {
+            analytics.add(cohort.next());
+            n++;
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Ingested %,d submissions in %.2f s (%,.0f/s)%n", n, secs, n / secs);
+        analytics.print(System.out, 30);
+    }
+}
@@ -0,0 +1,143 @@
+package exam;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Concurrent log-linear histogram of non-negative values (nanoseconds here), in the style
+ * of HdrHistogram: each power-of-two range is split into {@code 2^(SUB_BITS-1)} linear
+ * buckets, so every recorded value is kept to within 1/128 of itself (under 1%) across
+ * the full long range in a fixed 7,296 counters. Recording is a couple of shifts and one
+ * atomic increment; percentiles walk the counters and never see individual values.
+ */
+final class LatencyHistogram {
+    static final int SUB_BITS = 8;
+    private static final int SUB = 1 << SUB_BITS;
+    private static final int HALF = SUB >>> 1;
+    private static final int BUCKETS = SUB + (63 - SUB_BITS) * HALF;
+
+    final String name;
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    LatencyHistogram(String name) {
+        this.name = name;
+    }
+
+    void record(long value) {
+        if (value < 0) value = 0;
+        counts.incrementAndGet(index(value));
+        total.incrementAndGet();
+        sum.addAndGet(value);
+        long m;
+        while (value > (m = max.get()) && !max.compareAndSet(m, value)) {
+            // retry
+        }
+    }
+
+    /** Records {@code System.nanoTime() - startNanos}. */
+    void recordSince(long startNanos) {
+        record(System.nanoTime() - startNanos);
+    }
+
+    static int index(long v) {
+        if (v < SUB) return (int) v;
+        int b = 63 - Long.numberOfLeadingZeros(v); // v in [2^b, 2^(b+1)), b >= SUB_BITS
+        int shift = b - SUB_BITS + 1;
+        return SUB + (b - SUB_BITS) * HALF + (int) (v >>> shift) - HALF;
+    }
+
+    /** Largest value that maps to bucket {@code i}. */
+    static long highestValue(int i) {
+        if (i < SUB) return i;
+        int b = (i - SUB) / HALF + SUB_BITS;
+        int shift = b - SUB_BITS + 1;
+        long low = (long) ((i - SUB) % HALF + HALF) << shift;
+        return low + (1L << shift) - 1;
+    }
+
+    long count() {
+        return total.get();
+    }
+
+    long max() {
+        return max.get();
+    }
+
+    double mean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /** Smallest bucket value at or below which {@code percentile}% of the values fall. */
+    long valueAtPercentile(double percentile) {
+        long n = total.get();
+        if (n == 0) return 0;
+        long need = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= need) return Math.min(highestValue(i), max.get());
+        }
+        return max.get();
+    }
+
+    /** Standard deviation estimated from bucket midpoints. */
+    double stdDeviation() {
+        long n = total.get();
+        if (n == 0) return 0;
+        double mean = mean(), acc = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            long c = counts.get(i);
+            if (c == 0) continue;
+            double mid = (highestValue(i) + (i == 0 ? 0 : highestValue(i - 1) + 1)) / 2.0 - mean;
+            acc += c * mid * mid;
+        }
+        return Math.sqrt(acc / n);
+    }
+
+    void reset() {
+        for (int i = 0; i < BUCKETS; i++) counts.set(i, 0);
+        total.set(0);
+        sum.set(0);
+        max.set(0);
+    }
+
+    /**
+     * Writes the percentile distribution in HdrHistogram's text layout (values divided by
+     * {@code scale}), so existing HdrHistogram plotters can read it.
+     */
+    void writePercentiles(StringBuilder out, double scale) {
+        long n = total.get();
+        out.append(String.format(Locale.ROOT, "%12s %14s %10s %14s%n%n", "Value", "Percentile", "TotalCount", "1/(1-Percentile)"));
+        if (n > 0) {
+            long seen = 0;
+            int i = 0;
+            for (int half = 0; ; half++) {
+                double from = 100 * (1 - Math.pow(0.5, half)), to = 100 * (1 - Math.pow(0.5, half + 1));
+                for (int tick = 0; tick < 5; tick++) {
+                    double level = from + (to - from) * tick / 5;
+                    long need = Math.max(1, (long) Math.ceil(level / 100 * n));
+                    while (seen < need) seen += counts.get(i++);
+                    line(out, Math.min(highestValue(i - 1), max.get()) / scale, (double) seen / n, seen);
+                    if (seen >= n) break;
+                }
+                if (seen >= n) break;
+            }
+        }
+        out.append(String.format(Locale.ROOT, "#[Mean    = %12.3f, StdDeviation   = %12.3f]%n", mean() / scale, stdDeviation() / scale));
+        out.append(String.format(Locale.ROOT, "#[Max     = %12.3f, Total count    = %12d]%n", max() / scale, n));
+        out.append(String.format(Locale.ROOT, "#[Buckets = %12d, SubBuckets     = %12d]%n", 64 - SUB_BITS, SUB));
+    }
+
+    private static void line(StringBuilder out, double value, double fraction, long count) {
+        if (fraction >= 1) {
+            out.append(String.format(Locale.ROOT, "%12.3f %1.12f %10d%n", value, 1.0, count));
+        } else {
+            out.append(String.format(Locale.ROOT, "%12.3f %1.12f %10d %14.2f%n", value, fraction, count, 1 / (1 - fraction)));
+        }
+    }
+}
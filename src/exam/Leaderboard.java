@@ -0,0 +1,332 @@
+package exam;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Live rankings of submitted exams, per subject and overall, updated while submissions keep
+ * arriving.
+ *
+ * Results are ranked by points from 0 to {@link #MAX_POINTS} on one of two {@link Scale}s:
+ * the share of questions answered correctly for fixed papers, or the ability estimate for
+ * adaptive exams. The scales are not comparable, so each has its own subject and overall
+ * boards. A subject board keeps each candidate's best result. The overall board keeps the
+ * average of the candidate's best results across that scale's subjects.
+ *
+ * Each board has three parts:
+ *  - a Fenwick tree of counts per point value in an {@link AtomicLongArray}, so recording
+ *    is about ten lock-free adds, and both rank ("how many scored higher") and percentiles
+ *    take O(log {@code MAX_POINTS}) reads;
+ *  - a {@link ConcurrentSkipListSet} in rank order, which gives the top K in O(log n + K);
+ *  - a {@link ConcurrentHashMap} from user to entry. Updates for one user run inside its
+ *    {@code compute}, so the map's per-bin locking acts as the stripe lock and different
+ *    users never wait on each other.
+ *
+ * Readers take no lock. A query that races a move between point values may count that
+ * candidate at both values, or at neither, until the update finishes.
+ */
+final class Leaderboard {
+    static final int MAX_POINTS = 1000;
+
+    /** What a board's points measure. */
+    enum Scale {
+        PERCENT_CORRECT, // fixed papers
+        ABILITY;         // adaptive exams, AdaptivePool.MIN_THETA..MAX_THETA
+
+        static Scale of(ExamSession s) {
+            return s.adaptive == null ? PERCENT_CORRECT : ABILITY;
+        }
+
+        /** The result {@code points} stand for: percent correct, or the ability estimate. */
+        double value(int points) {
+            if (this == PERCENT_CORRECT) return points * 100.0 / MAX_POINTS;
+            return AdaptivePool.MIN_THETA + (AdaptivePool.MAX_THETA - AdaptivePool.MIN_THETA) * points / MAX_POINTS;
+        }
+
+        String format(int points) {
+            return this == PERCENT_CORRECT ? String.format("%.1f%%", value(points))
+                    : String.format("ability %+.2f", value(points));
+        }
+    }
+
+    /** One candidate's standing on a board. Earlier results rank first among equal points. */
+    static final class Entry {
+        final String user;
+        final int points;
+        final long sequence;
+
+        Entry(String user, int points, long sequence) {
+            this.user = user;
+            this.points = points;
+            this.sequence = sequence;
+        }
+    }
+
+    private static final Comparator<Entry> RANK_ORDER = (x, y) -> x.points != y.points
+            ? Integer.compare(y.points, x.points)
+            : x.sequence != y.sequence ? Long.compare(x.sequence, y.sequence) : x.user.compareTo(y.user);
+
+    /** Rankings for one subject, or overall. */
+    static final class Board {
+        final Scale scale;
+        final String subject; // null for the overall board
+        final String name;
+        private final AtomicLongArray tree = new AtomicLongArray(MAX_POINTS + 2); // 1-based, index = points + 1
+        private final ConcurrentSkipListSet<Entry> order = new ConcurrentSkipListSet<>(RANK_ORDER);
+        private final ConcurrentHashMap<String, Entry> byUser = new ConcurrentHashMap<>();
+
+        Board(Scale scale, String subject) {
+            this.scale = scale;
+            this.subject = subject;
+            String name = subject == null ? "Overall" : subject;
+            this.name = scale == Scale.ABILITY ? name + " (adaptive)" : name;
+        }
+
+        /** Records a result; only one better than the user's current entry replaces it. */
+        private void put(String user, int points, long sequence) {
+            byUser.compute(user, (u, old) -> {
+                if (old != null && old.points >= points) return old;
+                return replace(old, new Entry(u, points, sequence));
+            });
+        }
+
+        /** Moves a user from {@code old} (null if new) to {@code e}; call inside the user's compute. */
+        private Entry replace(Entry old, Entry e) {
+            // Add before removing, so top() never misses the user and counts never dip below zero.
+            order.add(e);
+            add(e.points, 1);
+            if (old != null) {
+                order.remove(old);
+                add(old.points, -1);
+            }
+            return e;
+        }
+
+        private void add(int points, long delta) {
+            for (int i = points + 1; i < tree.length(); i += i & -i) tree.addAndGet(i, delta);
+        }
+
+        /** Entries with at most {@code points}. */
+        private long atOrBelow(int points) {
+            long n = 0;
+            for (int i = Math.min(points, MAX_POINTS) + 1; i > 0; i -= i & -i) n += tree.get(i);
+            return n;
+        }
+
+        long size() {
+            return atOrBelow(MAX_POINTS);
+        }
+
+        Entry entry(String user) {
+            return byUser.get(user);
+        }
+
+        /** 1 + the number of candidates with more points; candidates with equal points share a rank. */
+        long rankOf(int points) {
+            return 1 + size() - atOrBelow(points);
+        }
+
+        /** The user's rank, or -1 if they have no result on this board. */
+        long rank(String user) {
+            Entry e = byUser.get(user);
+            return e == null ? -1 : rankOf(e.points);
+        }
+
+        /** Share of candidates with the same or fewer points, 0..1. */
+        double percentileRank(int points) {
+            long n = size();
+            return n == 0 ? Double.NaN : (double) atOrBelow(points) / n;
+        }
+
+        /** Smallest point value that at least {@code percentile}% of candidates are at or below; -1 if empty. */
+        int pointsAtPercentile(double percentile) {
+            long n = size();
+            if (n == 0) return -1;
+            long need = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+            // Fenwick descent: the largest index whose prefix is still below need, plus one.
+            int pos = 0;
+            for (int step = Integer.highestOneBit(tree.length() - 1); step > 0; step >>= 1) {
+                int next = pos + step;
+                if (next < tree.length() && tree.get(next) < need) {
+                    pos = next;
+                    need -= tree.get(next);
+                }
+            }
+            return Math.min(pos, MAX_POINTS); // index pos + 1 holds points pos
+        }
+
+        /** The best {@code k} entries, best first. */
+        java.util.List<Entry> top(int k) {
+            java.util.List<Entry> out = new ArrayList<>(Math.min(k, 64));
+            Set<String> seen = new HashSet<>();
+            for (Entry e : order) {
+                if (out.size() >= k) break;
+                // A user being moved can briefly appear twice; report their better entry.
+                if (seen.add(e.user)) out.add(e);
+            }
+            return out;
+        }
+    }
+
+    /** A scale's subject boards and its overall board. */
+    private static final class Boards {
+        final ConcurrentHashMap<String, Board> subjects = new ConcurrentHashMap<>();
+        final Board overall;
+
+        Boards(Scale scale) {
+            overall = new Board(scale, null);
+        }
+    }
+
+    private final EnumMap<Scale, Boards> scales = new EnumMap<>(Scale.class); // filled once, then only read
+    private final AtomicLong sequence = new AtomicLong();
+
+    Leaderboard() {
+        for (Scale scale : Scale.values()) scales.put(scale, new Boards(scale));
+    }
+
+    /** Points for a graded session on its {@link Scale}, 0..MAX_POINTS. */
+    static int points(ExamSession s) {
+        if (s.adaptive != null) {
+            double t = (s.adaptive.theta() - AdaptivePool.MIN_THETA) / (AdaptivePool.MAX_THETA - AdaptivePool.MIN_THETA);
+            return (int) Math.round(Math.max(0, Math.min(1, t)) * MAX_POINTS);
+        }
+        int n = s.questions.size();
+        return n == 0 ? 0 : (int) ((long) s.score * MAX_POINTS / n);
+    }
+
+    /** Records a submitted session. */
+    void record(String user, ExamSession s) {
+        record(user, Scale.of(s), s.subjectName, points(s));
+    }
+
+    void record(String user, Scale scale, String subject, int points) {
+        if (points < 0 || points > MAX_POINTS) throw new IllegalArgumentException("Points out of range: " + points);
+        long seq = sequence.incrementAndGet();
+        Boards boards = scales.get(scale);
+        boards.subjects.computeIfAbsent(subject, name -> new Board(scale, name)).put(user, points, seq);
+        // Recomputed inside the user's compute, so concurrent submissions for different
+        // subjects cannot leave a stale average behind.
+        Board overall = boards.overall;
+        overall.byUser.compute(user, (u, old) -> {
+            long sum = 0;
+            int taken = 0;
+            for (Board b : boards.subjects.values()) {
+                Entry e = b.byUser.get(u);
+                if (e != null) {
+                    sum += e.points;
+                    taken++;
+                }
+            }
+            int avg = (int) (sum / taken);
+            return old != null && old.points == avg ? old : overall.replace(old, new Entry(u, avg, seq));
+        });
+    }
+
+    /** The subject's board on {@code scale}, or null if nothing was recorded. */
+    Board board(Scale scale, String subject) {
+        return scales.get(scale).subjects.get(subject);
+    }
+
+    Board overall(Scale scale) {
+        return scales.get(scale).overall;
+    }
+
+    java.util.List<String> subjects(Scale scale) {
+        java.util.List<String> names = new ArrayList<>(scales.get(scale).subjects.keySet());
+        Collections.sort(names);
+        return names;
+    }
+
+    /** A few lines for the result screen: the user's standing on the session's boards. */
+    String summary(String user, ExamSession s, int k) {
+        return summary(user, Scale.of(s), s.subjectName, k);
+    }
+
+    /** The user's standing and the top entries of the subject's and the overall board on {@code scale}. */
+    String summary(String user, Scale scale, String subject, int k) {
+        StringBuilder sb = new StringBuilder();
+        for (Board b : new Board[]{board(scale, subject), overall(scale)}) {
+            if (b == null) continue;
+            Entry mine = b.entry(user);
+            sb.append(String.format("%s: %d candidate(s)", b.name, b.size()));
+            if (mine != null) {
+                sb.append(String.format(", you are #%d with %s", b.rankOf(mine.points), scale.format(mine.points)));
+            }
+            sb.append('\n');
+            for (Entry e : b.top(k)) {
+                sb.append(String.format("   %2d. %-20s %14s%n", b.rankOf(e.points), e.user, scale.format(e.points)));
+            }
+            sb.append('\n');
+        }
+        return sb.toString();
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * Ingests synthetic results from several threads while another thread keeps querying
+     * ranks and percentiles: {@code java exam.Leaderboard <results> [threads] [candidates]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1) {
+            System.err.println("Usage: java exam.Leaderboard <results> [threads] [candidates]");
+            System.exit(2);
+        }
+        int results = Integer.parseInt(args[0]);
+        int threads = args.length > 1 ? Integer.parseInt(args[1]) : 4;
+        int candidates = args.length > 2 ? Integer.parseInt(args[2]) : results / 2;
+        String[] subjectNames = {"Basic Coding", "Software Engineering", "Networking", "Databases"};
+        Leaderboard board = new Leaderboard();
+        LatencyHistogram ingest = new LatencyHistogram("record");
+        LatencyHistogram query = new LatencyHistogram("rank");
+        CountDownLatch done = new CountDownLatch(threads);
+        long start = System.nanoTime();
+        for (int t = 0; t < threads; t++) {
+            int id = t;
+            Thread w = new Thread(() -> {
+                Random rnd = new Random(id);
+                for (int i = id; i < results; i += threads) {
+                    int points = (int) Math.max(0, Math.min(MAX_POINTS, 600 + 150 * rnd.nextGaussian()));
+                    long began = System.nanoTime();
+                    board.record("candidate-" + rnd.nextInt(candidates), Scale.PERCENT_CORRECT,
+                            subjectNames[rnd.nextInt(subjectNames.length)], points);
+                    ingest.recordSince(began);
+                }
+                done.countDown();
+            }, "ingest-" + t);
+            w.start();
+        }
+        Thread reader = new Thread(() -> {
+            Random rnd = new Random(-1);
+            while (done.getCount() > 0) {
+                long began = System.nanoTime();
+                Board b = board.board(Scale.PERCENT_CORRECT, subjectNames[rnd.nextInt(subjectNames.length)]);
+                if (b != null) {
+                    b.rank("candidate-" + rnd.nextInt(candidates));
+                    b.pointsAtPercentile(90);
+                }
+                query.recordSince(began);
+            }
+        }, "query");
+        reader.start();
+        done.await();
+        reader.join();
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%,d results from %d threads in %.2f s (%,.0f/s) while answering %,d rank queries%n",
+                results, threads, secs, results / secs, query.count());
+        System.out.printf("record p50 %.1f us, p99 %.1f us; rank+percentile p50 %.1f us, p99 %.1f us%n",
+                ingest.valueAtPercentile(50) / 1e3, ingest.valueAtPercentile(99) / 1e3,
+                query.valueAtPercentile(50) / 1e3, query.valueAtPercentile(99) / 1e3);
+        for (String s : board.subjects(Scale.PERCENT_CORRECT)) {
+            Board b = board.board(Scale.PERCENT_CORRECT, s);
+            System.out.printf("%-22s %,9d candidates, median %5.1f%%, p90 %5.1f%%, leader %s%n", s, b.size(),
+                    b.pointsAtPercentile(50) / 10.0, b.pointsAtPercentile(90) / 10.0, b.top(1).get(0).user);
+        }
+        System.out.print(board.summary("candidate-0", Scale.PERCENT_CORRECT, subjectNames[0], 3));
+    }
+}
@@ -0,0 +1,267 @@
+package exam;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.reflect.Method;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.SecureRandom;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Drives {@link ExamService} with synthetic candidates, no Swing and no HTTP: each candidate
+ * logs in, starts a subject, answers every question after a think time with its own accuracy,
+ * moves on, and submits. Reports throughput, per-operation latency percentiles and heap use,
+ * to find where the engine stops scaling on one machine.
+ *
+ * Every candidate is its own thread: virtual threads when the JVM has them (JDK 21+),
+ * otherwise small-stack platform threads, so the number of concurrent candidates is the
+ * number simulated rather than a pool size. Think times are exponential around the mean,
+ * and each candidate's accuracy is drawn around the configured mean, so scores spread the
+ * way a real cohort's do.
+ */
+final class LoadSimulator {
+    static final int LOGIN_RETRIES = 50;
+
+    /** Simulation settings, from command-line options. */
+    static final class Settings {
+        int candidates = 1000;
+        long thinkMillis = 200;
+        double accuracy = 0.7;
+        int iterations = 1000; // PBKDF2 cost of the synthetic roster
+        long rampMillis = 1000;
+        String subject; // null: each candidate picks one at random
+        boolean adaptive;
+        Path journal; // null: no journal
+    }
+
+    private enum Op { LOGIN, START, ANSWER, NAVIGATE, SUBMIT }
+
+    private final Settings settings;
+    private final ExamService service;
+    private final java.util.List<String> subjects;
+    private final LatencyHistogram[] latency = new LatencyHistogram[Op.values().length];
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong loginRetries = new AtomicLong();
+    private final AtomicInteger submitted = new AtomicInteger();
+    private final AtomicInteger active = new AtomicInteger();
+    private final AtomicInteger peakActive = new AtomicInteger();
+    private final ConcurrentHashMap<String, AtomicLong> failures = new ConcurrentHashMap<>();
+    private final AtomicLong scoreSum = new AtomicLong();
+    private final AtomicLong questionsSum = new AtomicLong();
+
+    LoadSimulator(Settings settings, ExamService service) {
+        this.settings = settings;
+        this.service = service;
+        this.subjects = settings.subject != null ? Collections.singletonList(settings.subject) : QuestionBank.subjects();
+        for (Op op : Op.values()) latency[op.ordinal()] = new LatencyHistogram(op.name().toLowerCase(Locale.ROOT));
+    }
+
+    /** A roster of {@code candidate-0 .. candidate-(n-1)}, all with password "secret". */
+    static CredentialStore syntheticRoster(int n, int iterations) {
+        // One salt+hash shared by all: verification costs the same as with distinct ones.
+        byte[] salt = new byte[CredentialStore.SALT_BYTES];
+        new SecureRandom().nextBytes(salt);
+        byte[] hash = CredentialStore.hash("secret".toCharArray(), salt, iterations);
+        CredentialStore.Builder b = new CredentialStore.Builder();
+        for (int i = 0; i < n; i++) b.add("candidate-" + i, iterations, salt, hash);
+        return b.build();
+    }
+
+    /** Virtual-thread-per-task executor when available, otherwise a thread per candidate. */
+    static ExecutorService newCandidateExecutor() {
+        try {
+            Method m = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) m.invoke(null);
+        } catch (ReflectiveOperationException e) {
+            AtomicInteger n = new AtomicInteger();
+            return Executors.newCachedThreadPool(r -> {
+                Thread t = new Thread(null, r, "candidate-" + n.getAndIncrement(), 256 * 1024);
+                t.setDaemon(true);
+                return t;
+            });
+        }
+    }
+
+    // ---------- Candidates ----------
+
+    private void candidate(int id, long startAt) {
+        Random rnd = new Random(Paper.mix(id));
+        double accuracy = Math.max(0.05, Math.min(0.99, settings.accuracy + 0.15 * rnd.nextGaussian()));
+        String user = "candidate-" + id;
+        try {
+            pause(startAt - System.currentTimeMillis());
+            int now = active.incrementAndGet();
+            peakActive.accumulateAndGet(now, Math::max);
+            try {
+                String token = login(user, rnd);
+                String subject = subjects.get(rnd.nextInt(subjects.size()));
+                ExamSession s = timed(Op.START, () -> service.start(token, subject, settings.adaptive));
+                while (true) {
+                    int i = s.currentIndex;
+                    think(rnd);
+                    Question q = s.question(i);
+                    int option = rnd.nextDouble() < accuracy ? q.correctIndex : (q.correctIndex + 1 + rnd.nextInt(3)) & 3;
+                    timed(Op.ANSWER, () -> {
+                        service.answer(token, i, option);
+                        return null;
+                    });
+                    if (s.adaptive != null) {
+                        if (s.adaptive.finished()) break; // the service submits on the last answer
+                    } else if (i + 1 < s.questions.size()) {
+                        timed(Op.NAVIGATE, () -> service.navigate(token, i + 1));
+                    } else {
+                        break;
+                    }
+                }
+                // An adaptive exam was already submitted by its last answer, timed under ANSWER.
+                if (s.adaptive == null) timed(Op.SUBMIT, () -> service.submit(token));
+                submitted.incrementAndGet();
+                scoreSum.addAndGet(s.score);
+                questionsSum.addAndGet(s.questions.size());
+            } finally {
+                active.decrementAndGet();
+            }
+        } catch (ExamService.ServiceException e) {
+            failures.computeIfAbsent(e.status + " " + e.getMessage(), k -> new AtomicLong()).incrementAndGet();
+        } catch (RuntimeException e) {
+            failures.computeIfAbsent(e.toString(), k -> new AtomicLong()).incrementAndGet();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /** Logs in, backing off and retrying while the login pool answers 503. */
+    private String login(String user, Random rnd) throws InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            try {
+                return timed(Op.LOGIN, () -> service.login(user, "secret"));
+            } catch (ExamService.ServiceException e) {
+                if (e.status != 503 || attempt == LOGIN_RETRIES) throw e;
+                loginRetries.incrementAndGet();
+                pause(20 + rnd.nextInt(80));
+            }
+        }
+    }
+
+    private void think(Random rnd) throws InterruptedException {
+        if (settings.thinkMillis > 0) pause((long) (-settings.thinkMillis * Math.log(1 - rnd.nextDouble())));
+    }
+
+    private static void pause(long millis) throws InterruptedException {
+        if (millis > 0) Thread.sleep(millis);
+    }
+
+    private <T> T timed(Op op, Callable<T> call) {
+        long start = System.nanoTime();
+        try {
+            return call.call();
+        } catch (RuntimeException e) {
+            throw e;
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        } finally {
+            latency[op.ordinal()].recordSince(start);
+            requests.incrementAndGet();
+        }
+    }
+
+    // ---------- Run ----------
+
+    /** Runs all candidates to completion, sampling heap use, and prints the report. */
+    void run() throws InterruptedException {
+        MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        System.gc();
+        long baseline = memory.getHeapMemoryUsage().getUsed();
+        AtomicLong peakHeap = new AtomicLong(baseline);
+        ScheduledExecutorService sampler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "heap-sampler");
+            t.setDaemon(true);
+            return t;
+        });
+        sampler.scheduleAtFixedRate(() -> peakHeap.accumulateAndGet(memory.getHeapMemoryUsage().getUsed(), Math::max),
+                0, 50, TimeUnit.MILLISECONDS);
+
+        ExecutorService executor = newCandidateExecutor();
+        long begin = System.currentTimeMillis(), start = System.nanoTime();
+        for (int i = 0; i < settings.candidates; i++) {
+            int id = i;
+            long at = begin + settings.rampMillis * i / Math.max(1, settings.candidates);
+            executor.execute(() -> candidate(id, at));
+        }
+        executor.shutdown();
+        while (!executor.awaitTermination(5, TimeUnit.SECONDS)) {
+            System.out.printf("  ... %,d submitted, %,d active%n", submitted.get(), active.get());
+        }
+        double secs = (System.nanoTime() - start) / 1e9;
+        sampler.shutdownNow();
+        System.gc();
+        long retained = memory.getHeapMemoryUsage().getUsed() - baseline;
+
+        boolean virtual = !(executor instanceof ThreadPoolExecutor);
+        System.out.printf("%,d candidates on %s threads in %.1f s: %,d submitted, %,d failed, peak %,d concurrent%n",
+                settings.candidates, virtual ? "virtual" : "platform", secs, submitted.get(),
+                settings.candidates - submitted.get(), peakActive.get());
+        System.out.printf("Throughput: %,.1f exams/s, %,.0f requests/s; mean score %.1f of %.1f questions%n",
+                submitted.get() / secs, requests.get() / secs,
+                submitted.get() == 0 ? 0 : (double) scoreSum.get() / submitted.get(),
+                submitted.get() == 0 ? 0 : (double) questionsSum.get() / submitted.get());
+        System.out.printf("%-9s %10s %9s %9s %9s %9s%n", "op", "count", "p50 ms", "p90 ms", "p99 ms", "max ms");
+        for (Op op : Op.values()) {
+            LatencyHistogram h = latency[op.ordinal()];
+            if (h.count() == 0) continue;
+            System.out.printf("%-9s %,10d %9.3f %9.3f %9.3f %9.3f%n", op.name().toLowerCase(Locale.ROOT), h.count(),
+                    h.valueAtPercentile(50) / 1e6, h.valueAtPercentile(90) / 1e6, h.valueAtPercentile(99) / 1e6, h.max() / 1e6);
+        }
+        System.out.printf("Heap: peak %,.1f MB used, %,.1f MB retained after GC (%,.1f KB per candidate held by the service)%n",
+                peakHeap.get() / 1048576.0, retained / 1048576.0, retained / 1024.0 / Math.max(1, settings.candidates));
+        if (loginRetries.get() > 0) System.out.printf("Login retries after 503: %,d%n", loginRetries.get());
+        for (Map.Entry<String, AtomicLong> f : failures.entrySet()) {
+            System.out.printf("Failed: %,d x %s%n", f.getValue().get(), f.getKey());
+        }
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * {@code java exam.LoadSimulator <candidates> [--think <ms>] [--accuracy <0..1>] [--iterations <n>]
+     * [--ramp <ms>] [--subject <name>] [--adaptive] [--journal <dir>]}
+     */
+    public static void main(String[] args) throws Exception {
+        Settings s = new Settings();
+        try {
+            s.candidates = Integer.parseInt(args[0]);
+            for (int i = 1; i < args.length; i++) {
+                switch (args[i]) {
+                    case "--think": s.thinkMillis = Long.parseLong(args[++i]); break;
+                    case "--accuracy": s.accuracy = Double.parseDouble(args[++i]); break;
+                    case "--iterations": s.iterations = Integer.parseInt(args[++i]); break;
+                    case "--ramp": s.rampMillis = Long.parseLong(args[++i]); break;
+                    case "--subject": s.subject = args[++i]; break;
+                    case "--adaptive": s.adaptive = true; break;
+                    case "--journal": s.journal = Paths.get(args[++i]); break;
+                    default: throw new IllegalArgumentException(args[i]);
+                }
+            }
+        } catch (RuntimeException e) {
+            System.err.println("Usage: java exam.LoadSimulator <candidates> [--think <ms>] [--accuracy <0..1>]"
+                    + " [--iterations <n>] [--ramp <ms>] [--subject <name>] [--adaptive] [--journal <dir>]");
+            System.exit(2);
+        }
+        long t0 = System.nanoTime();
+        CredentialStore roster = syntheticRoster(s.candidates, s.iterations);
+        System.out.printf("Roster of %,d candidates (%,d iterations) in %.0f ms%n",
+                s.candidates, s.iterations, (System.nanoTime() - t0) / 1e6);
+        AnswerJournal journal = s.journal == null ? null : AnswerJournal.openConfigured(s.journal);
+        try {
+            ExamService service = new ExamService(ExamTimerService.shared(), journal, roster, 24 * 3_600_000L);
+            new LoadSimulator(s, service).run();
+        } finally {
+            if (journal != null) journal.close();
+        }
+        System.exit(0);
+    }
+}
@@ -0,0 +1,334 @@
+package exam;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Read-only, memory-mapped question bank.
+ *
+ * File layout (big-endian; section offsets are file positions, string refs are
+ * relative to the string table):
+ *  - Header:        magic, version, subjectCount, itemCount,
+ *                   indexOffset, idsOffset, itemsOffset, stringsOffset
+ *  - Subject index: per subject {nameOff, nameLen, idsStart, idsCount}
+ *  - Id table:      item numbers grouped by subject (int each)
+ *  - Item records:  fixed width {text ref, 4 option refs, correctIndex}
+ *  - String table:  UTF-8 bytes referenced as (offset, length) pairs
+ *
+ * Opening a bank reads only the header and the subject index, so it costs the same for
+ * ten items or a million. Items are decoded the first time they are served and cached
+ * per subject; nothing else of the bank ever lands on the heap.
+ */
+class MappedQuestionBank {
+    static final int MAGIC = 0x4F514231; // "OQB1"
+    static final int VERSION = 1;
+
+    static final int HEADER_BYTES = 32;
+    static final int SUBJECT_BYTES = 16;
+    static final int ITEM_BYTES = 44; // 5 string refs of 8 bytes + correctIndex + 3 padding
+    static final int OPTIONS = 4;
+
+    private final ByteBuffer buf;
+    private final int itemCount;
+    private final int idsOffset;
+    private final int itemsOffset;
+    private final int stringsOffset;
+    private final Map<String, Subject> subjects = new LinkedHashMap<>();
+
+    private MappedQuestionBank(ByteBuffer buf) throws IOException {
+        this.buf = buf;
+        if (buf.getInt(0) != MAGIC) throw new IOException("Not a question bank file");
+        if (buf.getInt(4) != VERSION) throw new IOException("Unsupported bank version " + buf.getInt(4));
+        int subjectCount = buf.getInt(8);
+        this.itemCount = buf.getInt(12);
+        int indexOffset = buf.getInt(16);
+        this.idsOffset = buf.getInt(20);
+        this.itemsOffset = buf.getInt(24);
+        this.stringsOffset = buf.getInt(28);
+
+        for (int i = 0; i < subjectCount; i++) {
+            int p = indexOffset + i * SUBJECT_BYTES;
+            String name = readString(buf.getInt(p), buf.getInt(p + 4));
+            subjects.put(name, new Subject(buf.getInt(p + 8), buf.getInt(p + 12)));
+        }
+    }
+
+    static MappedQuestionBank open(Path file) throws IOException {
+        try (FileChannel ch = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (ch.size() > Integer.MAX_VALUE) throw new IOException("Bank larger than 2 GB: " + file);
+            MappedByteBuffer mb = ch.map(FileChannel.MapMode.READ_ONLY, 0, ch.size());
+            mb.order(ByteOrder.BIG_ENDIAN);
+            return new MappedQuestionBank(mb);
+        }
+    }
+
+    Set<String> subjects() {
+        return Collections.unmodifiableSet(subjects.keySet());
+    }
+
+    int itemCount() {
+        return itemCount;
+    }
+
+    /** Lazy, read-only view over one subject; items are decoded on first access. */
+    java.util.List<Question> getQuestions(String subject) {
+        Subject s = subjects.get(subject);
+        return s == null ? Collections.<Question>emptyList() : s;
+    }
+
+    /**
+     * Text of a subject's item, without decoding its options or adding it to the subject's
+     * cache; for one-pass readers such as exports.
+     */
+    String questionText(String subject, int index) {
+        Subject s = subjects.get(subject);
+        if (s == null || index < 0 || index >= s.count) throw new IndexOutOfBoundsException(subject + " #" + index);
+        Question cached = s.cache[index];
+        if (cached != null) return cached.text;
+        int p = itemsOffset + buf.getInt(idsOffset + (s.idsStart + index) * 4) * ITEM_BYTES;
+        return readString(buf.getInt(p), buf.getInt(p + 4));
+    }
+
+    /**
+     * A subject's answer key read from the correct-index byte of each record; no item is
+     * decoded or cached. Empty for an unknown subject, like {@link #getQuestions}.
+     */
+    AnswerKey answerKey(String subject) {
+        Subject s = subjects.get(subject);
+        int[] correct = new int[s == null ? 0 : s.count];
+        for (int i = 0; i < correct.length; i++) correct[i] = correctIndex(buf.getInt(idsOffset + (s.idsStart + i) * 4));
+        return new AnswerKey(correct);
+    }
+
+    /** A subject's item, decoded afresh unless already cached and not added to the cache. */
+    Question uncached(String subject, int index) {
+        Subject s = subjects.get(subject);
+        if (s == null || index < 0 || index >= s.count) throw new IndexOutOfBoundsException(subject + " #" + index);
+        Question cached = s.cache[index];
+        return cached != null ? cached : decode(buf.getInt(idsOffset + (s.idsStart + index) * 4));
+    }
+
+    /** Decodes a single item by its bank-wide item number. */
+    Question decode(int item) {
+        int p = itemsOffset + item * ITEM_BYTES;
+        String text = readString(buf.getInt(p), buf.getInt(p + 4));
+        String[] options = new String[OPTIONS];
+        for (int i = 0; i < OPTIONS; i++) {
+            int r = p + 8 + i * 8;
+            options[i] = readString(buf.getInt(r), buf.getInt(r + 4));
+        }
+        return new Question(text, options, correctIndex(item));
+    }
+
+    /** The record's correct-index byte; a value outside 0..3 means the bank is corrupt. */
+    private int correctIndex(int item) {
+        int c = buf.get(itemsOffset + item * ITEM_BYTES + 40);
+        if (c < 0 || c >= OPTIONS) throw new IllegalStateException("Corrupt bank: item " + item + " has correct index " + c);
+        return c;
+    }
+
+    private String readString(int off, int len) {
+        byte[] b = new byte[len];
+        ByteBuffer d = buf.duplicate();
+        d.position(stringsOffset + off);
+        d.get(b);
+        return new String(b, StandardCharsets.UTF_8);
+    }
+
+    private final class Subject extends AbstractList<Question> implements RandomAccess {
+        final int idsStart;
+        final int count;
+        final Question[] cache; // benign race: Question is immutable
+
+        Subject(int idsStart, int count) {
+            this.idsStart = idsStart;
+            this.count = count;
+            this.cache = new Question[count];
+        }
+
+        @Override
+        public Question get(int index) {
+            if (index < 0 || index >= count) throw new IndexOutOfBoundsException("Index: " + index);
+            Question q = cache[index];
+            if (q == null) {
+                q = decode(buf.getInt(idsOffset + (idsStart + index) * 4));
+                cache[index] = q;
+            }
+            return q;
+        }
+
+        @Override
+        public int size() {
+            return count;
+        }
+    }
+
+    // ---------- Writer ----------
+
+    /**
+     * Streams items into a bank file. Strings and item records are spooled to temp files
+     * as they arrive; only the per-subject item numbers are kept in memory (4 bytes each).
+     */
+    static class Writer implements Closeable {
+        private final Path target;
+        private final Path stringsTmp;
+        private final Path itemsTmp;
+        private final DataOutputStream strings;
+        private final DataOutputStream items;
+        private final Map<String, IntList> bySubject = new LinkedHashMap<>();
+        private long stringBytes = 0;
+        private int itemCount = 0;
+
+        Writer(Path target) throws IOException {
+            this.target = target;
+            Path dir = target.toAbsolutePath().getParent();
+            this.stringsTmp = Files.createTempFile(dir, "bank", ".str");
+            this.itemsTmp = Files.createTempFile(dir, "bank", ".itm");
+            this.strings = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(stringsTmp), 1 << 16));
+            this.items = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(itemsTmp), 1 << 16));
+        }
+
+        void add(String subject, Question q) throws IOException {
+            if (q.correctIndex < 0 || q.correctIndex >= OPTIONS) {
+                throw new IllegalArgumentException("Correct index out of range: " + q.correctIndex);
+            }
+            writeRef(q.text);
+            for (int i = 0; i < OPTIONS; i++) writeRef(q.options[i]);
+            items.writeByte(q.correctIndex);
+            items.writeByte(0);
+            items.writeShort(0);
+            IntList ids = bySubject.get(subject);
+            if (ids == null) bySubject.put(subject, ids = new IntList());
+            ids.add(itemCount++);
+        }
+
+        int itemCount() {
+            return itemCount;
+        }
+
+        private void writeRef(String s) throws IOException {
+            byte[] b = s.getBytes(StandardCharsets.UTF_8);
+            items.writeInt(checkedOffset(stringBytes));
+            items.writeInt(b.length);
+            strings.write(b);
+            stringBytes += b.length;
+        }
+
+        @Override
+        public void close() throws IOException {
+            items.close();
+            // Subject names go to the end of the string table.
+            Map<String, int[]> nameRefs = new LinkedHashMap<>();
+            for (String name : bySubject.keySet()) {
+                byte[] b = name.getBytes(StandardCharsets.UTF_8);
+                nameRefs.put(name, new int[]{checkedOffset(stringBytes), b.length});
+                strings.write(b);
+                stringBytes += b.length;
+            }
+            strings.close();
+
+            int subjectCount = bySubject.size();
+            long indexOffset = HEADER_BYTES;
+            long idsOffset = indexOffset + (long) subjectCount * SUBJECT_BYTES;
+            long itemsOffset = idsOffset + (long) itemCount * 4;
+            long stringsOffset = itemsOffset + (long) itemCount * ITEM_BYTES;
+            checkedOffset(stringsOffset + stringBytes);
+
+            // Built next to the target and renamed over it, so a running exam that has the old
+            // bank mapped keeps reading intact data and a failed write leaves the old bank as it was.
+            Path bankTmp = target.resolveSibling(target.getFileName() + ".tmp");
+            boolean published = false;
+            try {
+                try (FileChannel out = FileChannel.open(bankTmp, StandardOpenOption.CREATE,
+                        StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+                    ByteBuffer head = ByteBuffer.allocate((int) (idsOffset));
+                    head.putInt(MAGIC).putInt(VERSION).putInt(subjectCount).putInt(itemCount)
+                            .putInt((int) indexOffset).putInt((int) idsOffset)
+                            .putInt((int) itemsOffset).putInt((int) stringsOffset);
+                    int start = 0;
+                    for (Map.Entry<String, IntList> e : bySubject.entrySet()) {
+                        int[] ref = nameRefs.get(e.getKey());
+                        head.putInt(ref[0]).putInt(ref[1]).putInt(start).putInt(e.getValue().size);
+                        start += e.getValue().size;
+                    }
+                    head.flip();
+                    writeFully(out, head);
+
+                    ByteBuffer ids = ByteBuffer.allocate(1 << 16);
+                    for (IntList list : bySubject.values()) {
+                        for (int i = 0; i < list.size; i++) {
+                            if (!ids.hasRemaining()) {
+                                ids.flip();
+                                writeFully(out, ids);
+                                ids.clear();
+                            }
+                            ids.putInt(list.data[i]);
+                        }
+                    }
+                    ids.flip();
+                    writeFully(out, ids);
+
+                    append(out, itemsTmp);
+                    append(out, stringsTmp);
+                    out.force(true);
+                }
+                Files.move(bankTmp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+                published = true;
+            } finally {
+                if (!published) Files.deleteIfExists(bankTmp);
+                Files.deleteIfExists(itemsTmp);
+                Files.deleteIfExists(stringsTmp);
+            }
+        }
+
+        /** Discards everything written so far without touching the target file. */
+        void abort() throws IOException {
+            try {
+                items.close();
+                strings.close();
+            } finally {
+                Files.deleteIfExists(itemsTmp);
+                Files.deleteIfExists(stringsTmp);
+            }
+        }
+
+        private static void append(FileChannel out, Path part) throws IOException {
+            try (FileChannel in = FileChannel.open(part, StandardOpenOption.READ)) {
+                long pos = 0, size = in.size();
+                while (pos < size) pos += in.transferTo(pos, size - pos, out);
+            }
+        }
+
+        private static void writeFully(FileChannel out, ByteBuffer b) throws IOException {
+            while (b.hasRemaining()) out.write(b);
+        }
+
+        private static int checkedOffset(long off) throws IOException {
+            if (off > Integer.MAX_VALUE) throw new IOException("Bank exceeds 2 GB format limit");
+            return (int) off;
+        }
+    }
+
+    // ---------- Main ----------
+
+    /** Writes the built-in subjects to a bank file: {@code java exam.MappedQuestionBank out.oqb} */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 1) {
+            System.err.println("Usage: java exam.MappedQuestionBank <out.oqb>");
+            System.exit(2);
+        }
+        Path out = Paths.get(args[0]);
+        try (Writer w = new Writer(out)) {
+            for (String subject : QuestionBank.builtInSubjects()) {
+                for (Question q : QuestionBank.builtIn(subject)) w.add(subject, q);
+            }
+        }
+        System.out.println("Wrote " + out);
+    }
+}
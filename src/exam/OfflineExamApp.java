@@ -0,0 +1,688 @@
+package exam;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.*;
+
+/**
+ * Offline Examination System (Swing, No Database)
+ * Subjects: Basic Coding, Software Engineering, Networking
+ * Features: Login, Subject selection, per-question timer, Next/Prev navigation,
+ * Shuffle questions, submit & result summary.
+ *
+ * How to build and run (from the project root):
+ *  - mvn -B package
+ *  - java -jar target/offline-exam-1.0-SNAPSHOT.jar        (desktop app)
+ *  - java -jar target/offline-exam-1.0-SNAPSHOT.jar --server 8080
+ *  - Benchmarks: mvn install -DskipTests, then mvn -f benchmarks/pom.xml package
+ * See README.md for the bank, roster and journal options.
+ */
+public class OfflineExamApp extends JFrame {
+    private final CardLayout cards = new CardLayout();
+    private final JPanel root = new JPanel(cards);
+
+    // Shared state
+    private String currentUser = null;
+    private ExamSession session = null;
+    // Every exam submitted in this app, ranked per subject and overall
+    private final Leaderboard leaderboard = new Leaderboard();
+
+    // Write-ahead journal (-Dexam.journal=dir), null when not configured. Appends run in
+    // order on their own thread so the EDT never waits for an fsync.
+    private AnswerJournal journal = null;
+    private final java.util.concurrent.ExecutorService journalWriter =
+            java.util.concurrent.Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "journal-append");
+                t.setDaemon(true);
+                return t;
+            });
+    private Map<String, AnswerJournal.Recovered> recovered = new HashMap<>();
+
+    // Cards
+    private final LoginPanel loginPanel = new LoginPanel();
+    private final SubjectPanel subjectPanel = new SubjectPanel();
+    private final ExamPanel examPanel = new ExamPanel();
+    private final ResultPanel resultPanel = new ResultPanel();
+
+    public OfflineExamApp() {
+        super("Offline Examination System (Swing)");
+        setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
+        setSize(900, 600);
+        setLocationRelativeTo(null);
+
+        root.add(loginPanel, "login");
+        root.add(subjectPanel, "subject");
+        root.add(examPanel, "exam");
+        root.add(resultPanel, "result");
+
+        add(root);
+        cards.show(root, "login");
+        openJournal();
+    }
+
+    private void openJournal() {
+        java.nio.file.Path dir = AnswerJournal.configuredDir();
+        if (dir == null) return;
+        try {
+            recovered = AnswerJournal.checkpoint(dir).open;
+            journal = AnswerJournal.openConfigured(dir);
+            Runtime.getRuntime().addShutdownHook(new Thread(this::closeJournal, "journal-close"));
+        } catch (java.io.IOException e) {
+            JOptionPane.showMessageDialog(this, "Answer journal unavailable: " + e.getMessage());
+        }
+    }
+
+    /** Queues a journal write; the action must not read state the EDT may change meanwhile. */
+    private void journal(AnswerJournal.Action action) {
+        AnswerJournal j = journal;
+        if (j == null) return;
+        journalWriter.execute(() -> {
+            try {
+                action.apply(j);
+            } catch (java.io.IOException e) {
+                System.err.println("Journal write failed: " + e.getMessage());
+            }
+        });
+    }
+
+    /** Lets queued appends finish, then closes the journal; runs at exit. */
+    private void closeJournal() {
+        journalWriter.shutdown();
+        try {
+            journalWriter.awaitTermination(5, java.util.concurrent.TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        journal.close();
+    }
+
+    /**
+     * Resumes an unfinished exam recorded in the journal before the last shutdown. Returns
+     * false if there is none; the session itself is rebuilt off the EDT. One whose deadline
+     * passed while the app was closed is submitted as it stands and its result shown.
+     */
+    private boolean resumeExam(String user) {
+        AnswerJournal.Recovered r = recovered.remove(user);
+        if (r == null) return false;
+        loadInBackground(r::toSession, s -> {
+            if (s.secondsLeft() <= 0) examPanel.autoSubmit();
+        }, () -> cards.show(root, "subject"));
+        return true;
+    }
+
+    private void startExam(String subjectName, boolean adaptive) {
+        String user = currentUser;
+        loadInBackground(() -> adaptive ? ExamSession.createAdaptive(user, subjectName) : ExamSession.create(user, subjectName),
+                s -> journal(j -> j.start(user, s)), () -> {});
+    }
+
+    /**
+     * Builds a session off the EDT (opening the bank and resolving the first questions can
+     * touch disk), then shows it. {@code onLoaded} runs on the EDT once the exam is shown.
+     */
+    private void loadInBackground(java.util.concurrent.Callable<ExamSession> load,
+                                  java.util.function.Consumer<ExamSession> onLoaded, Runnable onFailure) {
+        setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+        subjectPanel.setEnabled(false);
+        new SwingWorker<ExamSession, Void>() {
+            @Override
+            protected ExamSession doInBackground() throws Exception {
+                ExamSession s = load.call();
+                examPanel.prefetcher.reset(s);
+                examPanel.prefetcher.get(s.currentIndex); // first question ready before the EDT needs it
+                return s;
+            }
+
+            @Override
+            protected void done() {
+                setCursor(Cursor.getDefaultCursor());
+                subjectPanel.setEnabled(true);
+                try {
+                    session = get();
+                } catch (Exception e) {
+                    Throwable cause = e.getCause() == null ? e : e.getCause();
+                    JOptionPane.showMessageDialog(OfflineExamApp.this, "Could not load the exam: " + cause.getMessage());
+                    onFailure.run();
+                    return;
+                }
+                examPanel.loadSession(session);
+                cards.show(root, "exam");
+                onLoaded.accept(session);
+            }
+        }.execute();
+    }
+
+    private void showResult(ExamSession s, String details, String standings) {
+        resultPanel.showResult(s, details, standings);
+        cards.show(root, "result");
+    }
+
+    // ---------- Panels ----------
+    private class LoginPanel extends JPanel {
+        JTextField userField = new JTextField(15);
+        JPasswordField passField = new JPasswordField(15);
+        JLabel msg = new JLabel(" ");
+
+        LoginPanel() {
+            setLayout(new GridBagLayout());
+            GridBagConstraints gc = new GridBagConstraints();
+            gc.insets = new Insets(8, 8, 8, 8);
+            gc.fill = GridBagConstraints.HORIZONTAL;
+
+            JLabel title = new JLabel("Online Examination System (Offline)", SwingConstants.CENTER);
+            title.setFont(new Font("SansSerif", Font.BOLD, 22));
+
+            JPanel form = new JPanel(new GridBagLayout());
+            GridBagConstraints g2 = new GridBagConstraints();
+            g2.insets = new Insets(6, 6, 6, 6);
+            g2.fill = GridBagConstraints.HORIZONTAL;
+
+            g2.gridx = 0; g2.gridy = 0; form.add(new JLabel("Username:"), g2);
+            g2.gridx = 1; form.add(userField, g2);
+            g2.gridx = 0; g2.gridy = 1; form.add(new JLabel("Password:"), g2);
+            g2.gridx = 1; form.add(passField, g2);
+
+            JButton loginBtn = new JButton("Login");
+            loginBtn.addActionListener(e -> {
+                String u = userField.getText().trim();
+                String p = new String(passField.getPassword());
+                // Hashing is slow on purpose; verify on the credential pool, not the EDT.
+                loginBtn.setEnabled(false);
+                msg.setText("Checking...");
+                CredentialStore.shared().verifyAsync(u, p).whenComplete((ok, err) -> SwingUtilities.invokeLater(() -> {
+                    loginBtn.setEnabled(true);
+                    if (err != null) {
+                        msg.setText("Login service busy, please try again.");
+                    } else if (ok) {
+                        currentUser = u;
+                        passField.setText("");
+                        msg.setText("Login successful. Welcome, " + currentUser + "!");
+                        if (!resumeExam(u)) cards.show(root, "subject");
+                    } else {
+                        msg.setText(System.getProperty("exam.roster") == null
+                                ? "Invalid credentials. Try student/123 or admin/admin" : "Invalid credentials.");
+                    }
+                }));
+            });
+
+            gc.gridx = 0; gc.gridy = 0; gc.gridwidth = 1; add(title, gc);
+            gc.gridy = 1; add(form, gc);
+            gc.gridy = 2; add(loginBtn, gc);
+            gc.gridy = 3; msg.setForeground(new Color(180, 0, 0)); add(msg, gc);
+        }
+    }
+
+    private class SubjectPanel extends JPanel {
+        private final JPanel grid = new JPanel(new GridLayout(0, 3, 12, 12));
+        private final JCheckBox adaptive = new JCheckBox("Adaptive exam (fewer questions, chosen from your answers)");
+
+        @Override
+        public void setEnabled(boolean enabled) {
+            super.setEnabled(enabled);
+            for (Component c : grid.getComponents()) c.setEnabled(enabled);
+        }
+
+        SubjectPanel() {
+            setLayout(new BorderLayout(10, 10));
+            JLabel title = new JLabel("Select Subject", SwingConstants.CENTER);
+            title.setFont(new Font("SansSerif", Font.BOLD, 20));
+            add(title, BorderLayout.NORTH);
+
+            grid.add(new JLabel("Loading subjects...", SwingConstants.CENTER));
+            // The first bank access opens (and may map) the bank file; keep it off the EDT.
+            new SwingWorker<java.util.List<String>, Void>() {
+                @Override
+                protected java.util.List<String> doInBackground() {
+                    return QuestionBank.subjects();
+                }
+
+                @Override
+                protected void done() {
+                    grid.removeAll();
+                    try {
+                        for (String s : get()) {
+                            JButton b = new JButton(s);
+                            b.setPreferredSize(new Dimension(220, 90));
+                            b.addActionListener(e -> startExam(s, adaptive.isSelected()));
+                            grid.add(b);
+                        }
+                    } catch (Exception e) {
+                        grid.add(new JLabel("Could not load subjects: " + e.getMessage()));
+                    }
+                    grid.revalidate();
+                    grid.repaint();
+                }
+            }.execute();
+
+            JPanel south = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            JButton logout = new JButton("Logout");
+            logout.addActionListener(e -> {
+                currentUser = null;
+                cards.show(root, "login");
+            });
+            south.add(adaptive);
+            south.add(logout);
+
+            add(new JScrollPane(grid), BorderLayout.CENTER);
+            add(south, BorderLayout.SOUTH);
+        }
+    }
+
+    private class ExamPanel extends JPanel {
+        private JLabel subjectLabel = new JLabel();
+        private JLabel timerLabel = new JLabel("Time: 00:00");
+        private JTextArea questionArea = new JTextArea();
+        private JRadioButton[] optionBtns = new JRadioButton[4];
+        private ButtonGroup group = new ButtonGroup();
+        private JButton prevBtn = new JButton("Previous");
+        private JButton nextBtn = new JButton("Next");
+        private JButton clearBtn = new JButton("Clear");
+        private JButton flagBtn = new JButton("Flag");
+        private JButton submitBtn = new JButton("Submit");
+        private JLabel progressLabel = new JLabel("Q 0/0");
+
+        // Repaints the countdown while this panel shows a running exam; the deadline itself
+        // lives on the session and auto-submit is driven by ExamTimerService.
+        private final javax.swing.Timer displayTimer = new javax.swing.Timer(1000,
+                e -> { if (session != null) updateTimerLabel(session.secondsLeft()); });
+        private ExamTimerService.Timeout autoSubmitTimeout;
+        private boolean submitted;
+        private ExamMetrics.QuestionView viewing; // question on screen, for time-on-question
+        private final QuestionPalette palette = new QuestionPalette(this::goTo);
+        final QuestionPrefetcher prefetcher = new QuestionPrefetcher();
+
+        ExamPanel() {
+            setLayout(new BorderLayout(8, 8));
+
+            // Top bar
+            JPanel top = new JPanel(new BorderLayout());
+            subjectLabel.setFont(new Font("SansSerif", Font.BOLD, 18));
+            timerLabel.setFont(new Font("Monospaced", Font.BOLD, 16));
+            top.add(subjectLabel, BorderLayout.WEST);
+            top.add(timerLabel, BorderLayout.EAST);
+            add(top, BorderLayout.NORTH);
+
+            // Center: question + options
+            JPanel center = new JPanel(new BorderLayout(6, 6));
+            questionArea.setWrapStyleWord(true);
+            questionArea.setLineWrap(true);
+            questionArea.setEditable(false);
+            questionArea.setFont(new Font("Serif", Font.PLAIN, 16));
+            questionArea.setBorder(BorderFactory.createTitledBorder("Question"));
+            center.add(new JScrollPane(questionArea), BorderLayout.CENTER);
+
+            JPanel optionsPanel = new JPanel();
+            optionsPanel.setLayout(new GridLayout(4, 1, 6, 6));
+            for (int i = 0; i < 4; i++) {
+                optionBtns[i] = new JRadioButton("Option " + (i + 1));
+                final int opt = i;
+                optionBtns[i].addActionListener(e -> {
+                    // Adaptive answers are final, so they are committed by Next instead.
+                    if (session != null && session.adaptive == null) record(session.currentIndex, opt);
+                });
+                group.add(optionBtns[i]);
+                optionsPanel.add(optionBtns[i]);
+            }
+            optionsPanel.setBorder(BorderFactory.createTitledBorder("Options"));
+            center.add(optionsPanel, BorderLayout.SOUTH);
+            add(center, BorderLayout.CENTER);
+
+            // Right: question palette (answered / unanswered / flagged), click to jump
+            JScrollPane paletteScroll = new JScrollPane(palette,
+                    ScrollPaneConstants.VERTICAL_SCROLLBAR_AS_NEEDED, ScrollPaneConstants.HORIZONTAL_SCROLLBAR_NEVER);
+            paletteScroll.setBorder(BorderFactory.createTitledBorder("Questions"));
+            add(paletteScroll, BorderLayout.EAST);
+
+            // Bottom: navigation
+            JPanel bottom = new JPanel(new BorderLayout());
+            JPanel left = new JPanel(new FlowLayout(FlowLayout.LEFT));
+            left.add(progressLabel);
+            bottom.add(left, BorderLayout.WEST);
+
+            JPanel controls = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            prevBtn.addActionListener(e -> move(-1));
+            nextBtn.addActionListener(e -> move(1));
+            clearBtn.addActionListener(e -> {
+                group.clearSelection();
+                if (session != null) record(session.currentIndex, -1);
+            });
+            flagBtn.addActionListener(e -> toggleFlag());
+            submitBtn.addActionListener(e -> confirmSubmit());
+
+            controls.add(prevBtn);
+            controls.add(nextBtn);
+            controls.add(flagBtn);
+            controls.add(clearBtn);
+            controls.add(submitBtn);
+            bottom.add(controls, BorderLayout.EAST);
+
+            add(bottom, BorderLayout.SOUTH);
+        }
+
+        void loadSession(ExamSession s) {
+            this.subjectLabel.setText("Subject: " + s.subjectName);
+            prefetcher.reset(s);
+            palette.setSession(s);
+            updateProgress(s);
+            renderQuestion(s);
+            clearBtn.setEnabled(s.adaptive == null);
+            // Timer: 60 seconds per question (total); a resumed session keeps its deadline
+            if (s.deadlineMillis == 0) s.deadlineMillis = System.currentTimeMillis() + s.length() * 60 * 1000L;
+            submitted = false;
+            if (autoSubmitTimeout != null) autoSubmitTimeout.cancel();
+            autoSubmitTimeout = ExamTimerService.shared().schedule(s.deadlineMillis,
+                    () -> SwingUtilities.invokeLater(() -> {
+                        if (session == s && !submitted) autoSubmit();
+                    }));
+            updateTimerLabel(s.secondsLeft());
+            displayTimer.restart();
+        }
+
+        /** Saves an answer immediately and journals it if it changed; ignored once submitted. */
+        private void record(int index, int option) {
+            if (submitted) return;
+            if (session.select(index, option)) {
+                String user = currentUser;
+                journal(j -> j.answer(user, index, option));
+                palette.repaintCell(index);
+            }
+        }
+
+        private void toggleFlag() {
+            if (session == null || submitted) return;
+            int i = session.currentIndex;
+            session.sheet.setFlagged(i, !session.sheet.isFlagged(i));
+            updateFlagButton(session);
+            palette.repaintCell(i);
+        }
+
+        private void updateFlagButton(ExamSession s) {
+            flagBtn.setText(s.sheet.isFlagged(s.currentIndex) ? "Unflag" : "Flag");
+        }
+
+        private void updateTimerLabel(int sec) {
+            int m = sec / 60; int s = sec % 60;
+            timerLabel.setText(String.format("Time: %02d:%02d", m, s));
+        }
+
+        private void renderQuestion(ExamSession s) {
+            long start = System.nanoTime();
+            int index = s.currentIndex;
+            ExamMetrics.endView(viewing);
+            viewing = ExamMetrics.beginView(currentUser, s, index);
+            group.clearSelection();
+            // Usually prepared in the background already; the text area adopts its document.
+            QuestionPrefetcher.Prepared p = prefetcher.ready(index);
+            if (p != null) {
+                showQuestion(s, p);
+            } else {
+                // Not prefetched (e.g. a palette jump): the worker reads the bank, never the EDT.
+                questionArea.setDocument(new javax.swing.text.PlainDocument());
+                questionArea.setText((index + 1) + ". Loading...");
+                for (JRadioButton b : optionBtns) {
+                    b.setText(" ");
+                    b.setEnabled(false);
+                }
+                prefetcher.load(index).whenComplete((loaded, err) -> SwingUtilities.invokeLater(() -> {
+                    if (session != s || s.currentIndex != index) return; // moved on meanwhile
+                    if (loaded != null) showQuestion(s, loaded);
+                    else questionArea.setText((index + 1) + ". Could not load the question: "
+                            + (err.getCause() == null ? err : err.getCause()).getMessage());
+                }));
+            }
+
+            prevBtn.setEnabled(index > 0 && s.adaptive == null);
+            nextBtn.setEnabled(s.adaptive != null || index < s.questions.size() - 1);
+            updateFlagButton(s);
+            palette.setCurrent(index);
+            prefetcher.around(index);
+            ExamMetrics.RENDER.recordSince(start);
+        }
+
+        private void showQuestion(ExamSession s, QuestionPrefetcher.Prepared p) {
+            Question q = p.question;
+            questionArea.setDocument(p.document);
+            questionArea.setCaretPosition(0);
+            for (int i = 0; i < 4; i++) {
+                optionBtns[i].setText(q.options[i]);
+                optionBtns[i].setEnabled(true);
+            }
+            int chosen = s.selection(p.index);
+            if (chosen >= 0 && chosen < 4) optionBtns[chosen].setSelected(true);
+        }
+
+        private void move(int delta) {
+            if (session != null) goTo(session.currentIndex + delta);
+        }
+
+        private void goTo(int ni) {
+            if (session == null || submitted || ni == session.currentIndex) return;
+            if (session.adaptive != null) {
+                // Moving on is answering: the answer is final and picks the next question.
+                int chosen = -1;
+                for (int i = 0; i < 4; i++) if (optionBtns[i].isSelected()) chosen = i;
+                if (ni != session.currentIndex + 1 || chosen < 0) {
+                    Toolkit.getDefaultToolkit().beep();
+                    return;
+                }
+                record(session.currentIndex, chosen);
+                palette.revalidate();
+                if (session.adaptive.finished()) {
+                    doSubmit();
+                    return;
+                }
+            } else {
+                // Save current selection
+                for (int i = 0; i < 4; i++) {
+                    if (optionBtns[i].isSelected()) {
+                        record(session.currentIndex, i);
+                        break;
+                    }
+                }
+            }
+            if (ni >= 0 && ni < session.questions.size()) {
+                ExamMetrics.Navigate nav = ExamMetrics.beginNavigate(currentUser, session, session.currentIndex);
+                session.currentIndex = ni;
+                String user = currentUser;
+                journal(j -> j.navigate(user, ni));
+                updateProgress(session);
+                renderQuestion(session);
+                ExamMetrics.endNavigate(nav, ni);
+            }
+        }
+
+        private void updateProgress(ExamSession s) {
+            progressLabel.setText("Q " + (s.currentIndex + 1) + "/" + s.questions.size()
+                    + (s.adaptive == null ? "" : " (at most " + s.length() + ")"));
+        }
+
+        private void confirmSubmit() {
+            int opt = JOptionPane.showConfirmDialog(this, "Submit the exam now?", "Confirm",
+                    JOptionPane.YES_NO_OPTION);
+            if (opt == JOptionPane.YES_OPTION) doSubmit();
+        }
+
+        private void autoSubmit() {
+            displayTimer.stop();
+            updateTimerLabel(0);
+            // Submitted before the dialog, so a timer firing while it is open finds it done.
+            doSubmit();
+            JOptionPane.showMessageDialog(this, "Time is up! Your exam has been submitted.");
+        }
+
+        private void doSubmit() {
+            if (submitted) return;
+            ExamMetrics.Submit timing = ExamMetrics.beginSubmit(currentUser, session);
+            ExamMetrics.endView(viewing);
+            viewing = null;
+            displayTimer.stop();
+            if (autoSubmitTimeout != null) autoSubmitTimeout.cancel();
+            // Capture current selection
+            for (int i = 0; i < 4; i++) {
+                if (optionBtns[i].isSelected()) {
+                    record(session.currentIndex, i);
+                    break;
+                }
+            }
+            submitted = true;
+            ExamSession s = session;
+            String user = currentUser, name = user == null ? "Student" : user;
+            setCursor(Cursor.getPredefinedCursor(Cursor.WAIT_CURSOR));
+            // Scoring builds the paper's key and the result screen reads every question; either
+            // can touch disk, so both run off the EDT and only the finished text comes back.
+            new SwingWorker<Void, Void>() {
+                private String details, standings;
+
+                @Override
+                protected Void doInBackground() {
+                    s.evaluate();
+                    int score = s.score;
+                    journal(j -> j.submit(user, score));
+                    leaderboard.record(name, s);
+                    details = resultDetails(s);
+                    standings = leaderboard.summary(name, s, 10);
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    setCursor(Cursor.getDefaultCursor());
+                    try {
+                        get();
+                    } catch (Exception e) {
+                        Throwable cause = e.getCause() == null ? e : e.getCause();
+                        JOptionPane.showMessageDialog(OfflineExamApp.this, "Could not score the exam: " + cause.getMessage());
+                        return;
+                    }
+                    showResult(s, details, standings);
+                    ExamMetrics.endSubmit(timing, s.score);
+                }
+            }.execute();
+        }
+    }
+
+    private class ResultPanel extends JPanel {
+        private JLabel summary = new JLabel(" ", SwingConstants.CENTER);
+        private JTextArea details = new JTextArea();
+        private JTextArea standings = new JTextArea();
+        private JButton export = new JButton("Export...");
+        private ExamSession shown;
+
+        ResultPanel() {
+            setLayout(new BorderLayout(8, 8));
+            JLabel title = new JLabel("Result Summary", SwingConstants.CENTER);
+            title.setFont(new Font("SansSerif", Font.BOLD, 20));
+            add(title, BorderLayout.NORTH);
+
+            details.setEditable(false);
+            details.setFont(new Font("Monospaced", Font.PLAIN, 14));
+            standings.setEditable(false);
+            standings.setFont(new Font("Monospaced", Font.PLAIN, 14));
+
+            JTabbedPane tabs = new JTabbedPane();
+            tabs.addTab("Answers", new JScrollPane(details));
+            tabs.addTab("Leaderboard", new JScrollPane(standings));
+            JPanel center = new JPanel(new BorderLayout());
+            center.add(summary, BorderLayout.NORTH);
+            center.add(tabs, BorderLayout.CENTER);
+            add(center, BorderLayout.CENTER);
+
+            JPanel south = new JPanel(new FlowLayout(FlowLayout.RIGHT));
+            JButton again = new JButton("Take Another Subject");
+            JButton logout = new JButton("Logout");
+
+            export.addActionListener(e -> exportResult());
+            again.addActionListener(e -> cards.show(root, "subject"));
+            logout.addActionListener(e -> cards.show(root, "login"));
+
+            south.add(export);
+            south.add(again);
+            south.add(logout);
+            add(south, BorderLayout.SOUTH);
+        }
+
+        /** Shows a scored session; the texts are built off the EDT by the caller. */
+        void showResult(ExamSession s, String detailText, String standingText) {
+            shown = s;
+            String name = (currentUser == null ? "Student" : currentUser);
+            summary.setText("User: " + name + "    Subject: " + s.subjectName +
+                    "    Score: " + s.score + "/" + s.questions.size());
+            details.setText(detailText);
+            details.setCaretPosition(0);
+            standings.setText(standingText);
+            standings.setCaretPosition(0);
+        }
+
+        private void exportResult() {
+            if (shown == null) return;
+            JFileChooser chooser = new JFileChooser();
+            chooser.setDialogTitle("Export results to folder");
+            chooser.setFileSelectionMode(JFileChooser.DIRECTORIES_ONLY);
+            if (chooser.showSaveDialog(this) != JFileChooser.APPROVE_OPTION) return;
+            String name = (currentUser == null ? "Student" : currentUser);
+            ExamSession s = shown;
+            java.io.File dir = chooser.getSelectedFile();
+            export.setEnabled(false);
+            // Reading item text and writing the files can touch disk, so neither runs on the EDT.
+            new SwingWorker<Void, Void>() {
+                @Override
+                protected Void doInBackground() throws Exception {
+                    ResultExporter.export(Collections.singletonList(CohortGrader.Submission.of(name, s)).iterator(),
+                            dir.toPath(), ResultExporter.Format.CSV,
+                            Collections.singletonMap(s.subjectName, CohortGrader.Submission.key(s)));
+                    return null;
+                }
+
+                @Override
+                protected void done() {
+                    export.setEnabled(true);
+                    try {
+                        get();
+                        JOptionPane.showMessageDialog(ResultPanel.this, "Exported to " + dir);
+                    } catch (Exception ex) {
+                        Throwable cause = ex.getCause() == null ? ex : ex.getCause();
+                        JOptionPane.showMessageDialog(ResultPanel.this, "Export failed: " + cause.getMessage(), "Export",
+                                JOptionPane.ERROR_MESSAGE);
+                    }
+                }
+            }.execute();
+        }
+    }
+
+    /** Per-question breakdown shown on the result screen. */
+    static String resultDetails(ExamSession s) {
+        StringBuilder sb = new StringBuilder();
+        if (s.adaptive != null) {
+            sb.append(String.format("Ability estimate: %.2f (standard error %.2f)\n\n",
+                    s.adaptive.theta(), s.adaptive.standardError()));
+        }
+        int qno = 1;
+        for (int i = 0; i < s.questions.size(); i++) {
+            Question q = s.question(i);
+            int sel = s.selection(i);
+            sb.append(String.format("Q%d: %s\n", qno++, q.text));
+            sb.append(String.format("   Correct: %s\n", q.options[q.correctIndex]));
+            sb.append(String.format("   Your Ans: %s\n\n", (sel >= 0 ? q.options[sel] : "(not attempted)")));
+        }
+        return sb.toString();
+    }
+
+    // ---------- Main ----------
+    public static void main(String[] args) throws Exception {
+        ExamMetrics.installConfigured();
+        try {
+            CredentialStore.shared(); // an unreadable roster stops the app here, not at the first login
+        } catch (ExceptionInInitializerError e) {
+            System.err.println(e.getCause().getMessage());
+            System.exit(1);
+        }
+        if (args.length > 0 && args[0].equals("--server")) {
+            ExamServer.main(Arrays.copyOfRange(args, 1, args.length));
+            return;
+        }
+        SwingUtilities.invokeLater(() -> {
+            OfflineExamApp app = new OfflineExamApp();
+            app.setVisible(true);
+        });
+    }
+}
@@ -0,0 +1,134 @@
+package exam;
+
+import java.util.AbstractList;
+import java.util.RandomAccess;
+
+/**
+ * One candidate's paper: a seeded permutation of a subject's items and of each item's
+ * options, evaluated on demand over the shared, immutable bank view. Nothing per item is
+ * stored, so a paper costs its seed and size no matter how long it is, and the same seed
+ * always reproduces the same paper (for resuming, audit and regrading).
+ *
+ * Question order is a keyed Feistel network over the smallest power-of-4 domain covering
+ * the subject, with cycle-walking to stay inside [0, size). Option order is one of the 24
+ * permutations of four options, picked per item from the seed.
+ */
+final class Paper {
+    private static final int ROUNDS = 4;
+    private static final byte[][] OPTION_PERMS = new byte[24][];
+
+    static {
+        int n = 0;
+        for (int a = 0; a < 4; a++)
+            for (int b = 0; b < 4; b++)
+                for (int c = 0; c < 4; c++)
+                    for (int d = 0; d < 4; d++)
+                        if (a != b && a != c && a != d && b != c && b != d && c != d)
+                            OPTION_PERMS[n++] = new byte[]{(byte) a, (byte) b, (byte) c, (byte) d};
+    }
+
+    final String subject;
+    final long seed;
+    private final java.util.List<Question> bank; // shared subject view, bank order
+    private final int size;
+    private final int halfBits;
+    private final int halfMask;
+
+    Paper(String subject, java.util.List<Question> bank, long seed) {
+        this.subject = subject;
+        this.bank = bank;
+        this.seed = seed;
+        this.size = bank.size();
+        int bits = 2;
+        while ((1L << bits) < size) bits += 2;
+        this.halfBits = bits / 2;
+        this.halfMask = (1 << halfBits) - 1;
+    }
+
+    int size() {
+        return size;
+    }
+
+    /** Bank index of the item shown at {@code position}. */
+    int item(int position) {
+        if (position < 0 || position >= size) throw new IndexOutOfBoundsException("Position " + position + " of " + size);
+        int x = position;
+        do {
+            x = encrypt(x);
+        } while (Integer.compareUnsigned(x, size) >= 0);
+        return x;
+    }
+
+    private int encrypt(int x) {
+        int l = x >>> halfBits, r = x & halfMask;
+        for (int round = 0; round < ROUNDS; round++) {
+            int t = r;
+            r = l ^ (int) (mix(seed + round * 0x9E3779B97F4A7C15L + r) & halfMask);
+            l = t;
+        }
+        return (l << halfBits) | r;
+    }
+
+    /** Bank option shown as option {@code shown} at {@code position}. */
+    int bankOption(int position, int shown) {
+        return itemOption(item(position), shown);
+    }
+
+    /** Bank option shown as option {@code shown} whenever bank item {@code item} is shown. */
+    int itemOption(int item, int shown) {
+        return OPTION_PERMS[optionPerm(item)][shown];
+    }
+
+    /** Shown option that displays bank option {@code option} at {@code position}. */
+    int shownOption(int position, int option) {
+        byte[] perm = OPTION_PERMS[optionPerm(item(position))];
+        for (int j = 0; j < perm.length; j++) if (perm[j] == option) return j;
+        throw new IllegalArgumentException("Option out of range: " + option);
+    }
+
+    private int optionPerm(int item) {
+        return (int) Long.remainderUnsigned(mix(seed ^ (item * 0xC2B2AE3D27D4EB4FL)), OPTION_PERMS.length);
+    }
+
+    /** The item at {@code position} with its options in paper order. Allocated per call. */
+    Question question(int position) {
+        return itemQuestion(item(position));
+    }
+
+    /** Bank item {@code item} with its options in this paper's order, wherever it is shown. */
+    Question itemQuestion(int item) {
+        Question q = bank.get(item);
+        byte[] perm = OPTION_PERMS[optionPerm(item)];
+        String[] options = new String[perm.length];
+        int correct = -1;
+        for (int j = 0; j < perm.length; j++) {
+            options[j] = q.options[perm[j]];
+            if (perm[j] == q.correctIndex) correct = j;
+        }
+        return new Question(q.text, options, correct);
+    }
+
+    /** Read-only list view of the paper in presentation order. */
+    java.util.List<Question> asList() {
+        return new Questions();
+    }
+
+    private final class Questions extends AbstractList<Question> implements RandomAccess {
+        @Override
+        public Question get(int index) {
+            return question(index);
+        }
+
+        @Override
+        public int size() {
+            return size;
+        }
+    }
+
+    /** SplitMix64 finalizer. */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+}
@@ -0,0 +1,52 @@
+package exam;
+
+import java.nio.charset.StandardCharsets;
+import java.security.SecureRandom;
+
+/**
+ * Derives each candidate's {@link Paper} from (salt, candidate, subject). The salt is the
+ * exam window's secret: set {@code -Dexam.paperSalt} to make papers reproducible across
+ * restarts, otherwise a random salt is drawn per process (journaled sessions still resume
+ * exactly, since the journal records each paper's seed).
+ */
+final class PaperGenerator {
+    private final long salt;
+
+    PaperGenerator(long salt) {
+        this.salt = salt;
+    }
+
+    private static final class Shared {
+        static final PaperGenerator INSTANCE = new PaperGenerator(configuredSalt());
+
+        private static long configuredSalt() {
+            String s = System.getProperty("exam.paperSalt");
+            if (s != null && !s.isEmpty()) return hash(0, s);
+            return new SecureRandom().nextLong();
+        }
+    }
+
+    static PaperGenerator shared() {
+        return Shared.INSTANCE;
+    }
+
+    long seedFor(String candidate, String subject) {
+        return Paper.mix(hash(hash(salt, candidate), subject));
+    }
+
+    Paper generate(String candidate, String subject) {
+        return paper(subject, seedFor(candidate, subject));
+    }
+
+    /** Rebuilds a paper from a recorded seed. */
+    static Paper paper(String subject, long seed) {
+        return new Paper(subject, QuestionBank.view(subject), seed);
+    }
+
+    /** 64-bit FNV-1a over the UTF-8 bytes of {@code s}, chained from {@code h}. */
+    private static long hash(long h, String s) {
+        h ^= 0xcbf29ce484222325L;
+        for (byte b : s.getBytes(StandardCharsets.UTF_8)) h = (h ^ (b & 0xFF)) * 0x100000001b3L;
+        return (h ^ 0xFF) * 0x100000001b3L; // terminator so ("ab","c") != ("a","bc")
+    }
+}
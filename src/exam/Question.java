@@ -0,0 +1,14 @@
+package exam;
+
+class Question {
+    final String text;
+    final String[] options;
+    final int correctIndex; // 0..3
+
+    Question(String text, String[] options, int correctIndex) {
+        if (options.length != 4) throw new IllegalArgumentException("Exactly 4 options required");
+        this.text = text;
+        this.options = options;
+        this.correctIndex = correctIndex;
+    }
+}
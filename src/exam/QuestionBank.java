@@ -0,0 +1,167 @@
+package exam;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Question source for the exam. When the {@code exam.bank} system property points at a
+ * bank file (see {@link MappedQuestionBank}) items are served from it; otherwise the
+ * built-in subjects below are used.
+ */
+class QuestionBank {
+    private static final String[] BUILT_IN = {"Basic Coding", "Software Engineering", "Networking"};
+
+    private static final MappedQuestionBank mapped = openConfigured();
+    private static final Map<String, java.util.List<Question>> BUILT_IN_VIEWS = new java.util.concurrent.ConcurrentHashMap<>();
+
+    private static MappedQuestionBank openConfigured() {
+        String path = System.getProperty("exam.bank");
+        if (path == null || path.isEmpty()) return null;
+        try {
+            return MappedQuestionBank.open(Paths.get(path));
+        } catch (IOException e) {
+            System.err.println("Could not open question bank " + path + ": " + e.getMessage());
+            return null;
+        }
+    }
+
+    static java.util.List<String> subjects() {
+        if (mapped != null) return new ArrayList<>(mapped.subjects());
+        return Arrays.asList(BUILT_IN);
+    }
+
+    static java.util.List<Question> getQuestions(String subject) {
+        // Mutable copy of the (lazily decoded) items so callers can shuffle it.
+        if (mapped != null) return new ArrayList<>(mapped.getQuestions(subject));
+        return builtIn(subject);
+    }
+
+    /** Read-only view of a subject in bank order; nothing is copied and items decode on access. */
+    static java.util.List<Question> view(String subject) {
+        if (mapped != null) return mapped.getQuestions(subject);
+        return BUILT_IN_VIEWS.computeIfAbsent(subject, s -> Collections.unmodifiableList(builtIn(s)));
+    }
+
+    /** One item in bank order, read without caching it; for one-pass scans of the whole bank. */
+    static Question uncached(String subject, int index) {
+        if (mapped != null) return mapped.uncached(subject, index);
+        return view(subject).get(index);
+    }
+
+    /** Question text of one item in bank order, read without caching the decoded item. */
+    static String text(String subject, int index) {
+        if (mapped != null) return mapped.questionText(subject, index);
+        return view(subject).get(index).text;
+    }
+
+    /** Answer key of a subject in bank order; a mapped bank reads it without decoding any item. */
+    static AnswerKey answerKey(String subject) {
+        if (mapped != null) return mapped.answerKey(subject);
+        return AnswerKey.of(view(subject));
+    }
+
+    static String[] builtInSubjects() {
+        return BUILT_IN.clone();
+    }
+
+    static java.util.List<Question> builtIn(String subject) {
+        switch (subject) {
+            case "Basic Coding":
+                return basicCoding();
+            case "Software Engineering":
+                return softwareEngineering();
+            case "Networking":
+                return networking();
+            default:
+                return new ArrayList<>();
+        }
+    }
+
+    private static java.util.List<Question> basicCoding() {
+        java.util.List<Question> qs = new ArrayList<>();
+        qs.add(new Question(
+                "Which symbol is used for single-line comments in Java?",
+                new String[]{"#", "//", "/* */", "--"}, 1));
+        qs.add(new Question(
+                "What will be printed: int a=3,b=2; System.out.println(a+b*2);",
+                new String[]{"10", "7", "8", "5"}, 1));
+        qs.add(new Question(
+                "Which data structure uses FIFO order?",
+                new String[]{"Stack", "Queue", "Tree", "Graph"}, 1));
+        qs.add(new Question(
+                "Which keyword creates a new object in Java?",
+                new String[]{"new", "create", "make", "alloc"}, 0));
+        qs.add(new Question(
+                "Which loop runs at least once regardless of condition?",
+                new String[]{"for", "while", "do-while", "foreach"}, 2));
+        qs.add(new Question(
+                "Which method is entry point of a Java program?",
+                new String[]{"start()", "run()", "main(String[] args)", "init()"}, 2));
+        qs.add(new Question(
+                "Which of these is NOT a primitive type in Java?",
+                new String[]{"int", "boolean", "double", "String"}, 3));
+        qs.add(new Question(
+                "What does '==' compare for primitive types?",
+                new String[]{"Values", "References", "Hash codes", "Memory addresses only"}, 0));
+        return qs;
+    }
+
+    private static java.util.List<Question> softwareEngineering() {
+        java.util.List<Question> qs = new ArrayList<>();
+        qs.add(new Question(
+                "Which SDLC model is best when requirements frequently change?",
+                new String[]{"Waterfall", "V-Model", "Spiral", "Agile"}, 3));
+        qs.add(new Question(
+                "In Scrum, a time-boxed iteration is called a...",
+                new String[]{"Module", "Sprint", "Epic", "Story"}, 1));
+        qs.add(new Question(
+                "SRS stands for...",
+                new String[]{"Software Result Sheet", "System Requirement Set", "Software Requirements Specification", "Standard Requirement Spec"}, 2));
+        qs.add(new Question(
+                "Which of these is NOT a good design principle?",
+                new String[]{"High cohesion", "Low coupling", "Tight coupling", "Separation of concerns"}, 2));
+        qs.add(new Question(
+                "Which UML diagram shows object interactions over time?",
+                new String[]{"Use Case", "Class", "Sequence", "Component"}, 2));
+        qs.add(new Question(
+                "Validation ensures...",
+                new String[]{"you built the product right", "you built the right product", "code compiles", "tests are automated"}, 1));
+        qs.add(new Question(
+                "Black-box testing focuses on...",
+                new String[]{"code structure", "performance only", "functional behavior without internal details", "unit internals"}, 2));
+        qs.add(new Question(
+                "The V-Model primarily emphasizes...",
+                new String[]{"Rapid prototyping", "Mapping testing to development phases", "Customer collaboration only", "No documentation"}, 1));
+        return qs;
+    }
+
+    private static java.util.List<Question> networking() {
+        java.util.List<Question> qs = new ArrayList<>();
+        qs.add(new Question(
+                "Which OSI layer is responsible for routing?",
+                new String[]{"Data Link", "Network", "Transport", "Session"}, 1));
+        qs.add(new Question(
+                "Which protocol provides reliable, connection-oriented transport?",
+                new String[]{"UDP", "IP", "TCP", "ICMP"}, 2));
+        qs.add(new Question(
+                "Default port for HTTP is...",
+                new String[]{"20", "21", "25", "80"}, 3));
+        qs.add(new Question(
+                "A device that connects multiple networks and forwards packets is a...",
+                new String[]{"Hub", "Switch", "Router", "Repeater"}, 2));
+        qs.add(new Question(
+                "Which of the following is NOT an application-layer protocol?",
+                new String[]{"HTTP", "FTP", "SMTP", "ARP"}, 3));
+        qs.add(new Question(
+                "DNS is used for...",
+                new String[]{"Encrypting data", "Resolving domain names to IP addresses", "Routing decisions", "Flow control"}, 1));
+        qs.add(new Question(
+                "The subnet mask for a /24 network is...",
+                new String[]{"255.0.0.0", "255.255.0.0", "255.255.255.0", "255.255.255.128"}, 2));
+        qs.add(new Question(
+                "Which layer handles end-to-end process-to-process communication in OSI?",
+                new String[]{"Session", "Transport", "Network", "Application"}, 1));
+        return qs;
+    }
+}
@@ -0,0 +1,687 @@
+package exam;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Bulk importer that turns a CSV or JSON question file into a {@link MappedQuestionBank}.
+ *
+ * The input is parsed on the calling thread and handed out in fixed-size batches through a
+ * bounded queue, so memory stays flat regardless of file size. Worker threads validate the
+ * batches in parallel and a single writer thread appends accepted items to the bank. Each
+ * batch carries its read sequence number and the writer takes batches strictly in that
+ * order, deciding duplicates as it goes, so the same input always yields the same bank:
+ * the first occurrence of a question is kept, later ones are rejected. At most
+ * {@code 4 * threads} batches are between the reader and the bank at any time, so a slow
+ * batch holds the others back instead of piling them up in the writer.
+ *
+ * CSV:  subject,text,option1,option2,option3,option4,correctIndex (optional header row)
+ * JSON: one object per item, either as JSON lines or inside a top-level array:
+ *       {"subject": "...", "text": "...", "options": ["a","b","c","d"], "correctIndex": 1}
+ */
+class QuestionImporter {
+    static final int BATCH_SIZE = 1024;
+
+    enum Reject { OPTION_COUNT, CORRECT_INDEX, EMPTY_FIELD, DUPLICATE, MALFORMED }
+
+    /** One item as read from the file, before validation. */
+    static final class Raw {
+        final long record;
+        final String subject;
+        final String text;
+        final java.util.List<String> options;
+        final String correct;
+
+        Raw(long record, String subject, String text, java.util.List<String> options, String correct) {
+            this.record = record;
+            this.subject = subject;
+            this.text = text;
+            this.options = options;
+            this.correct = correct;
+        }
+    }
+
+    private static final class Batch {
+        static final Batch END = new Batch(-1, new ArrayList<Raw>(0));
+        final long sequence;
+        final java.util.List<Raw> raw;
+        // Items that passed validation, with their fingerprints; duplicates are left to the writer.
+        final java.util.List<Raw> valid = new ArrayList<>();
+        final java.util.List<Question> questions = new ArrayList<>();
+        final long[] fingerprints;
+
+        Batch(long sequence, java.util.List<Raw> raw) {
+            this.sequence = sequence;
+            this.raw = raw;
+            this.fingerprints = new long[raw.size()];
+        }
+    }
+
+    private static final int SAMPLES = 20;
+
+    private final int threads;
+    private final LongHashSet seen = new LongHashSet(); // writer thread only
+    private final AtomicLong[] rejects = new AtomicLong[Reject.values().length];
+    private final TreeMap<Long, String> rejectSamples = new TreeMap<>(); // the first SAMPLES by record; guarded by itself
+
+    private long records;
+    private long accepted;
+    private long bytes;
+    private long elapsedNanos;
+
+    QuestionImporter(int threads) {
+        this.threads = Math.max(1, threads);
+        for (int i = 0; i < rejects.length; i++) rejects[i] = new AtomicLong();
+    }
+
+    void importFile(Path in, Path out) throws IOException, InterruptedException {
+        long start = System.nanoTime();
+        BlockingQueue<Batch> toValidate = new ArrayBlockingQueue<>(threads * 2);
+        BlockingQueue<Batch> toWrite = new ArrayBlockingQueue<>(threads * 2);
+        ExecutorService pool = Executors.newFixedThreadPool(threads + 1);
+        Semaphore window = new Semaphore(threads * 4); // batches read but not yet written
+        CountingInputStream counting = new CountingInputStream(Files.newInputStream(in));
+        MappedQuestionBank.Writer writer = new MappedQuestionBank.Writer(out);
+
+        try {
+            java.util.List<Future<?>> stages = new ArrayList<>();
+            for (int i = 0; i < threads; i++) {
+                stages.add(pool.submit(() -> {
+                    for (Batch b = toValidate.take(); b != Batch.END; b = toValidate.take()) {
+                        validate(b);
+                        toWrite.put(b);
+                    }
+                    toValidate.put(Batch.END); // let the next worker see it too
+                    return null;
+                }));
+            }
+            Future<Long> written = pool.submit(() -> {
+                long n = 0;
+                IOException failure = null;
+                Map<Long, Batch> early = new HashMap<>(); // validated ahead of their turn
+                long next = 0;
+                // Keep draining after a write failure so the validators never block on a full queue.
+                for (Batch b = toWrite.take(); b != Batch.END; b = toWrite.take()) {
+                    early.put(b.sequence, b);
+                    for (Batch ready; (ready = early.remove(next)) != null; next++) {
+                        window.release();
+                        if (failure != null) continue;
+                        try {
+                            n += write(ready, writer);
+                        } catch (IOException e) {
+                            failure = e;
+                        }
+                    }
+                }
+                if (failure != null) throw failure;
+                return n;
+            });
+            stages.add(written);
+
+            Reader reader = new InputStreamReader(counting, StandardCharsets.UTF_8);
+            RecordSource source = in.toString().toLowerCase(Locale.ROOT).endsWith(".csv")
+                    ? new CsvSource(reader) : new JsonSource(reader);
+            java.util.List<Raw> batch = new ArrayList<>(BATCH_SIZE);
+            long sequence = 0;
+            try {
+                for (Raw r = next(source); r != null; r = next(source)) {
+                    batch.add(r);
+                    if (batch.size() == BATCH_SIZE) {
+                        acquire(window, stages);
+                        put(toValidate, new Batch(sequence++, batch), stages);
+                        batch = new ArrayList<>(BATCH_SIZE);
+                    }
+                }
+                if (!batch.isEmpty()) {
+                    acquire(window, stages);
+                    put(toValidate, new Batch(sequence, batch), stages);
+                }
+                put(toValidate, Batch.END, stages);
+            } finally {
+                counting.close();
+            }
+
+            for (int i = 0; i < threads; i++) await(stages.get(i));
+            put(toWrite, Batch.END, stages);
+            accepted = await(written);
+        } catch (Throwable t) {
+            // The writer thread must be gone before the bank is discarded; a failed import
+            // leaves no output behind.
+            stop(pool);
+            try {
+                writer.abort();
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+        stop(pool);
+        writer.close();
+        bytes = counting.count;
+        elapsedNanos = System.nanoTime() - start;
+    }
+
+    /** Appends a batch's new questions in input order; returns how many were written. */
+    private int write(Batch b, MappedQuestionBank.Writer writer) throws IOException {
+        int n = 0;
+        for (int i = 0; i < b.valid.size(); i++) {
+            Raw r = b.valid.get(i);
+            if (!seen.add(b.fingerprints[i])) {
+                reject(Reject.DUPLICATE, r.record, r.text);
+                continue;
+            }
+            writer.add(r.subject.trim(), b.questions.get(i));
+            n++;
+        }
+        return n;
+    }
+
+    /** Queues a batch, rethrowing the failure of any stage that died instead of waiting on it forever. */
+    private static void put(BlockingQueue<Batch> queue, Batch b, java.util.List<? extends Future<?>> stages)
+            throws IOException, InterruptedException {
+        while (!queue.offer(b, 100, TimeUnit.MILLISECONDS)) {
+            for (Future<?> f : stages) if (f.isDone()) await(f);
+        }
+    }
+
+    /** Waits for a place in the reorder window, rethrowing the failure of any stage that died meanwhile. */
+    private static void acquire(Semaphore window, java.util.List<? extends Future<?>> stages)
+            throws IOException, InterruptedException {
+        while (!window.tryAcquire(100, TimeUnit.MILLISECONDS)) {
+            for (Future<?> f : stages) if (f.isDone()) await(f);
+        }
+    }
+
+    /** Interrupts the pool's threads and waits for them to finish, even if this thread is interrupted meanwhile. */
+    private static void stop(ExecutorService pool) {
+        pool.shutdownNow();
+        boolean interrupted = false;
+        while (true) {
+            try {
+                if (pool.awaitTermination(1, TimeUnit.SECONDS)) break;
+            } catch (InterruptedException e) {
+                interrupted = true;
+            }
+        }
+        if (interrupted) Thread.currentThread().interrupt();
+    }
+
+    private Raw next(RecordSource source) throws IOException {
+        while (true) {
+            try {
+                Raw r = source.next();
+                if (r != null) records++;
+                return r;
+            } catch (MalformedRecordException e) {
+                records++;
+                reject(Reject.MALFORMED, e.record, e.getMessage());
+            }
+        }
+    }
+
+    private static <T> T await(Future<T> f) throws IOException, InterruptedException {
+        try {
+            return f.get();
+        } catch (ExecutionException e) {
+            Throwable c = e.getCause();
+            if (c instanceof IOException) throw (IOException) c;
+            if (c instanceof RuntimeException) throw (RuntimeException) c;
+            throw new IOException(c);
+        }
+    }
+
+    private void validate(Batch b) {
+        for (Raw r : b.raw) {
+            if (r.options.size() != MappedQuestionBank.OPTIONS) {
+                reject(Reject.OPTION_COUNT, r.record, r.options.size() + " options");
+                continue;
+            }
+            if (isBlank(r.subject) || isBlank(r.text) || anyBlank(r.options)) {
+                reject(Reject.EMPTY_FIELD, r.record, "empty subject, text or option");
+                continue;
+            }
+            int correct = -1;
+            try {
+                if (r.correct != null) correct = Integer.parseInt(r.correct.trim());
+            } catch (NumberFormatException e) {
+                // reported below
+            }
+            if (correct < 0 || correct >= MappedQuestionBank.OPTIONS) {
+                reject(Reject.CORRECT_INDEX, r.record, "correctIndex " + r.correct);
+                continue;
+            }
+            b.fingerprints[b.valid.size()] = fingerprint(r.subject.trim(), r.text);
+            b.valid.add(r);
+            b.questions.add(new Question(r.text.trim(), r.options.toArray(new String[0]), correct));
+        }
+    }
+
+    private void reject(Reject reason, long record, String detail) {
+        rejects[reason.ordinal()].incrementAndGet();
+        synchronized (rejectSamples) {
+            if (rejectSamples.size() == SAMPLES) {
+                if (record > rejectSamples.lastKey()) return;
+                rejectSamples.pollLastEntry();
+            }
+            rejectSamples.put(record, "record " + record + ": " + reason + " (" + detail + ")");
+        }
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.trim().isEmpty();
+    }
+
+    private static boolean anyBlank(java.util.List<String> options) {
+        for (String o : options) if (isBlank(o)) return true;
+        return false;
+    }
+
+    /** 64-bit FNV-1a over subject and case/whitespace-normalized text. */
+    static long fingerprint(String subject, String text) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < subject.length(); i++) h = (h ^ subject.charAt(i)) * 0x100000001b3L;
+        h = (h ^ 0x1F) * 0x100000001b3L;
+        boolean space = true;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (Character.isWhitespace(c)) {
+                space = true;
+                continue;
+            }
+            if (space) h = (h ^ ' ') * 0x100000001b3L;
+            space = false;
+            h = (h ^ Character.toLowerCase(c)) * 0x100000001b3L;
+        }
+        return h;
+    }
+
+    void printReport(PrintStream out) {
+        double secs = elapsedNanos / 1e9;
+        long rejected = 0;
+        for (AtomicLong r : rejects) rejected += r.get();
+        out.printf("Records:  %,d read, %,d accepted, %,d rejected%n", records, accepted, rejected);
+        for (Reject r : Reject.values()) {
+            long n = rejects[r.ordinal()].get();
+            if (n > 0) out.printf("  %-14s %,d%n", r, n);
+        }
+        synchronized (rejectSamples) {
+            for (String s : rejectSamples.values()) out.println("  " + s);
+        }
+        out.printf("Elapsed:  %.2f s with %d validator threads%n", secs, threads);
+        out.printf("Throughput: %,.0f records/s, %.1f MB/s%n", records / secs, bytes / secs / (1 << 20));
+    }
+
+    // ---------- Sources ----------
+
+    interface RecordSource {
+        /** Next record, or null at end of input. */
+        Raw next() throws IOException;
+    }
+
+    static final class MalformedRecordException extends IOException {
+        final long record;
+
+        MalformedRecordException(long record, String msg) {
+            super(msg);
+            this.record = record;
+        }
+    }
+
+    /** RFC 4180 style CSV: quoted fields may contain commas, quotes ("") and newlines. */
+    static final class CsvSource implements RecordSource {
+        private final Reader in;
+        private final char[] buf = new char[1 << 16];
+        private int pos, limit;
+        private final StringBuilder field = new StringBuilder();
+        private long record = 0;
+        private int peek = -2;
+
+        CsvSource(Reader in) {
+            this.in = in;
+        }
+
+        @Override
+        public Raw next() throws IOException {
+            while (true) {
+                java.util.List<String> f = readRecord();
+                if (f == null) return null;
+                record++;
+                if (f.size() == 1 && f.get(0).isEmpty()) continue; // blank line
+                if (record == 1 && f.get(0).trim().equalsIgnoreCase("subject")) continue;
+                if (f.size() < 3) throw new MalformedRecordException(record, f.size() + " columns");
+                return new Raw(record, f.get(0), f.get(1), f.subList(2, f.size() - 1), f.get(f.size() - 1));
+            }
+        }
+
+        private int read() throws IOException {
+            if (peek != -2) {
+                int c = peek;
+                peek = -2;
+                return c;
+            }
+            if (pos == limit) {
+                limit = in.read(buf, 0, buf.length);
+                pos = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    return -1;
+                }
+            }
+            return buf[pos++];
+        }
+
+        private java.util.List<String> readRecord() throws IOException {
+            int c = read();
+            if (c == -1) return null;
+            java.util.List<String> fields = new ArrayList<>(8);
+            field.setLength(0);
+            boolean quoted = false;
+            while (true) {
+                if (quoted) {
+                    if (c == -1) throw new MalformedRecordException(record + 1, "unterminated quote");
+                    if (c == '"') {
+                        int n = read();
+                        if (n == '"') field.append('"');
+                        else {
+                            quoted = false;
+                            c = n;
+                            continue;
+                        }
+                    } else {
+                        field.append((char) c);
+                    }
+                } else if (c == '"' && field.length() == 0) {
+                    quoted = true;
+                } else if (c == ',') {
+                    fields.add(field.toString());
+                    field.setLength(0);
+                } else if (c == '\n' || c == '\r' || c == -1) {
+                    if (c == '\r') {
+                        int n = read();
+                        if (n != '\n') peek = n;
+                    }
+                    fields.add(field.toString());
+                    return fields;
+                } else {
+                    field.append((char) c);
+                }
+                c = read();
+            }
+        }
+    }
+
+    /**
+     * Streaming reader for a sequence of JSON objects, either whitespace separated or
+     * wrapped in one top-level array. Only one object is materialized at a time.
+     */
+    static final class JsonSource implements RecordSource {
+        private final PushbackReader in;
+        private final StringBuilder sb = new StringBuilder();
+        private long record = 0;
+        private int depth; // objects and arrays open in the current record
+        private boolean inString;
+
+        JsonSource(Reader in) {
+            this.in = new PushbackReader(new BufferedReader(in, 1 << 16), 1);
+        }
+
+        @Override
+        public Raw next() throws IOException {
+            int c = skipSeparators();
+            if (c == -1) return null;
+            record++;
+            depth = 0;
+            inString = false;
+            Object v;
+            try {
+                in.unread(c);
+                v = value();
+            } catch (MalformedRecordException e) {
+                skipRecord();
+                throw e;
+            }
+            if (!(v instanceof Map)) throw malformed("expected object");
+            Map<?, ?> m = (Map<?, ?>) v;
+            Object options = m.get("options");
+            java.util.List<String> opts = new ArrayList<>();
+            if (options instanceof java.util.List) {
+                for (Object o : (java.util.List<?>) options) opts.add(o == null ? null : o.toString());
+            }
+            Object correct = m.get("correctIndex");
+            if (correct instanceof Double) {
+                double d = (Double) correct;
+                if (d != Math.rint(d) || Double.isInfinite(d)) throw malformed("correctIndex " + correct + " is not an integer");
+                correct = (long) d;
+            }
+            return new Raw(record, str(m.get("subject")), str(m.get("text")), opts, str(correct));
+        }
+
+        private static String str(Object o) {
+            return o == null ? null : o.toString();
+        }
+
+        private int skipSeparators() throws IOException {
+            int c;
+            do {
+                c = in.read();
+            } while (c == '[' || c == ']' || c == ',' || Character.isWhitespace(c));
+            return c;
+        }
+
+        /**
+         * After a malformed record, skips to the end of the object or array it opened, so the
+         * next record starts at the next value whatever the line layout.
+         */
+        private void skipRecord() throws IOException {
+            int c;
+            while (depth > 0 && (c = in.read()) != -1) {
+                if (inString) {
+                    if (c == '\\') in.read();
+                    else if (c == '"') inString = false;
+                } else if (c == '"') {
+                    inString = true;
+                } else if (c == '{' || c == '[') {
+                    depth++;
+                } else if (c == '}' || c == ']') {
+                    depth--;
+                }
+            }
+        }
+
+        private int nonWs() throws IOException {
+            int c;
+            do {
+                c = in.read();
+            } while (c != -1 && Character.isWhitespace(c));
+            return c;
+        }
+
+        private Object value() throws IOException {
+            int c = nonWs();
+            switch (c) {
+                case '{': {
+                    depth++;
+                    Map<String, Object> m = new HashMap<>();
+                    c = nonWs();
+                    if (c == '}') {
+                        depth--;
+                        return m;
+                    }
+                    while (true) {
+                        if (c != '"') throw unexpected(c, "expected key");
+                        String key = string();
+                        if ((c = nonWs()) != ':') throw unexpected(c, "expected ':'");
+                        m.put(key, value());
+                        c = nonWs();
+                        if (c == '}') {
+                            depth--;
+                            return m;
+                        }
+                        if (c != ',') throw unexpected(c, "expected ',' or '}'");
+                        c = nonWs();
+                    }
+                }
+                case '[': {
+                    depth++;
+                    java.util.List<Object> l = new ArrayList<>();
+                    c = nonWs();
+                    if (c == ']') {
+                        depth--;
+                        return l;
+                    }
+                    in.unread(c);
+                    while (true) {
+                        l.add(value());
+                        c = nonWs();
+                        if (c == ']') {
+                            depth--;
+                            return l;
+                        }
+                        if (c != ',') throw unexpected(c, "expected ',' or ']'");
+                    }
+                }
+                case '"':
+                    return string();
+                case -1:
+                    throw malformed("unexpected end of input");
+                default: {
+                    sb.setLength(0);
+                    while (c != -1 && (Character.isLetterOrDigit(c) || c == '-' || c == '+' || c == '.')) {
+                        sb.append((char) c);
+                        c = in.read();
+                    }
+                    String t = sb.toString();
+                    if (t.isEmpty()) throw malformed("unexpected '" + (char) c + "'"); // consumed, so parsing moves on
+                    if (c != -1) in.unread(c);
+                    if (t.equals("null")) return null;
+                    if (t.equals("true") || t.equals("false")) return Boolean.valueOf(t);
+                    try {
+                        return Double.valueOf(t);
+                    } catch (NumberFormatException e) {
+                        throw malformed("bad literal " + t);
+                    }
+                }
+            }
+        }
+
+        private String string() throws IOException {
+            sb.setLength(0);
+            inString = true;
+            while (true) {
+                int c = in.read();
+                if (c == -1) throw malformed("unterminated string");
+                if (c == '"') {
+                    inString = false;
+                    return sb.toString();
+                }
+                if (c == '\\') {
+                    c = in.read();
+                    switch (c) {
+                        case 'n': sb.append('\n'); break;
+                        case 't': sb.append('\t'); break;
+                        case 'r': sb.append('\r'); break;
+                        case 'b': sb.append('\b'); break;
+                        case 'f': sb.append('\f'); break;
+                        case 'u': {
+                            char[] hex = new char[4];
+                            for (int i = 0; i < 4; i++) hex[i] = (char) in.read();
+                            try {
+                                sb.append((char) Integer.parseInt(new String(hex), 16));
+                            } catch (NumberFormatException e) {
+                                throw malformed("bad unicode escape");
+                            }
+                            break;
+                        }
+                        default: sb.append((char) c);
+                    }
+                } else {
+                    sb.append((char) c);
+                }
+            }
+        }
+
+        /** Puts back the offending char so {@link #skipRecord} sees any string or bracket it opens. */
+        private MalformedRecordException unexpected(int c, String msg) throws IOException {
+            if (c != -1) in.unread(c);
+            return malformed(msg);
+        }
+
+        private MalformedRecordException malformed(String msg) {
+            return new MalformedRecordException(record, msg);
+        }
+    }
+
+    private static final class CountingInputStream extends FilterInputStream {
+        long count;
+
+        CountingInputStream(InputStream in) {
+            super(new BufferedInputStream(in, 1 << 16));
+        }
+
+        @Override
+        public int read() throws IOException {
+            int c = super.read();
+            if (c >= 0) count++;
+            return c;
+        }
+
+        @Override
+        public int read(byte[] b, int off, int len) throws IOException {
+            int n = super.read(b, off, len);
+            if (n > 0) count += n;
+            return n;
+        }
+    }
+
+    /** Open-addressing set of 64-bit fingerprints (8 bytes per entry); not thread-safe. */
+    static final class LongHashSet {
+        private long[] table = new long[1 << 16];
+        private int size;
+        private boolean hasZero;
+
+        boolean add(long key) {
+            if (key == 0) {
+                if (hasZero) return false;
+                return hasZero = true;
+            }
+            long[] t = table;
+            int mask = t.length - 1;
+            for (int i = (int) (key * 0x9E3779B97F4A7C15L) & mask; ; i = (i + 1) & mask) {
+                if (t[i] == key) return false;
+                if (t[i] == 0) {
+                    t[i] = key;
+                    if (++size * 2 > t.length) table = grow(t);
+                    return true;
+                }
+            }
+        }
+
+        private static long[] grow(long[] old) {
+            long[] t = new long[old.length * 2];
+            int mask = t.length - 1;
+            for (long k : old) {
+                if (k == 0) continue;
+                int i = (int) (k * 0x9E3779B97F4A7C15L) & mask;
+                while (t[i] != 0) i = (i + 1) & mask;
+                t[i] = k;
+            }
+            return t;
+        }
+    }
+
+    // ---------- Main ----------
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2) {
+            System.err.println("Usage: java exam.QuestionImporter <input.csv|input.json> <out.oqb> [threads]");
+            System.exit(2);
+        }
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        QuestionImporter importer = new QuestionImporter(threads);
+        importer.importFile(Paths.get(args[0]), Paths.get(args[1]));
+        importer.printReport(System.out);
+    }
+}
@@ -0,0 +1,414 @@
+package exam;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Keyword search and near-duplicate detection over question items, built incrementally.
+ *
+ * Search is an inverted index: every lower-cased word of an item's text and options maps
+ * to the ascending list of items containing it, and a query intersects the lists of its
+ * words starting from the shortest, using binary search for the longer lists.
+ *
+ * Near duplicates are found with MinHash + LSH over word-pair shingles: each item gets
+ * {@link #BANDS} x {@link #ROWS} min-hashes, each band of {@code ROWS} is hashed to one int,
+ * and items sharing any band key become candidates. Candidates are then confirmed with the
+ * exact Jaccard similarity of their shingle sets. With 8 bands of 4, a pair at similarity
+ * 0.8 becomes a candidate 98.5% of the time, and a pair at 0.9 99.98% of the time. Per
+ * band, only an int key and a chain link are stored for each item.
+ *
+ * Besides its postings, each item keeps only its bank position and its shingle set (needed
+ * to confirm candidates); its text is read back from the bank, uncached, when shown.
+ *
+ * Items are added under a write lock; searches run concurrently under the read lock.
+ */
+final class QuestionIndex {
+    static final int BANDS = 8;
+    static final int ROWS = 4;
+    static final double DEFAULT_THRESHOLD = 0.8;
+    private static final long[] SEEDS = new long[BANDS * ROWS];
+
+    static {
+        long s = 0x5DEECE66DL;
+        for (int i = 0; i < SEEDS.length; i++) SEEDS[i] = s = Paper.mix(s + i);
+    }
+
+    /** One indexed item and where it came from. */
+    static final class Item {
+        final int id;
+        final String subject;
+        final int index; // position in the subject, bank order
+
+        Item(int id, String subject, int index) {
+            this.id = id;
+            this.subject = subject;
+            this.index = index;
+        }
+
+        /** The item's question text, read from the bank without caching it. */
+        String text() {
+            return QuestionBank.text(subject, index);
+        }
+    }
+
+    /** Two items and their exact shingle similarity. */
+    static final class Match {
+        final Item a, b;
+        final double similarity;
+
+        Match(Item a, Item b, double similarity) {
+            this.a = a;
+            this.b = b;
+            this.similarity = similarity;
+        }
+    }
+
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+    private final ArrayList<Item> items = new ArrayList<>();
+    private final HashMap<String, IntList> postings = new HashMap<>();
+
+    private long[][] shingleSets = new long[1024][]; // by id, for confirming candidates
+    // LSH: per band, each item's key and the next item in its bucket's chain (-1 ends).
+    private int[][] bandKeys = new int[BANDS][1024];
+    private int[][] next = new int[BANDS][1024];
+    private int[][] heads = newHeads(2048);
+
+    private static int[][] newHeads(int capacity) {
+        int[][] h = new int[BANDS][capacity];
+        for (int[] band : h) Arrays.fill(band, -1);
+        return h;
+    }
+
+    int size() {
+        lock.readLock().lock();
+        try {
+            return items.size();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    Item item(int id) {
+        lock.readLock().lock();
+        try {
+            return items.get(id);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- Building ----------
+
+    /** Indexes one item found at {@code index} of {@code subject}; {@code q} is not retained. Returns its id. */
+    int add(String subject, int index, Question q) {
+        // Tokenizing and hashing need no lock.
+        java.util.List<String> tokens = words(q);
+        Set<String> words = new HashSet<>(tokens);
+        long[] shingles = shingles(tokens);
+        int[] keys = bandKeys(shingles);
+        lock.writeLock().lock();
+        try {
+            int id = items.size();
+            items.add(new Item(id, subject, index));
+            for (String w : words) {
+                IntList list = postings.get(w);
+                if (list == null) postings.put(w, list = new IntList());
+                list.add(id);
+            }
+            if (id == bandKeys[0].length) {
+                shingleSets = Arrays.copyOf(shingleSets, id * 2);
+                for (int b = 0; b < BANDS; b++) {
+                    bandKeys[b] = Arrays.copyOf(bandKeys[b], id * 2);
+                    next[b] = Arrays.copyOf(next[b], id * 2);
+                }
+            }
+            shingleSets[id] = shingles;
+            if (id >= heads[0].length) rehash(heads[0].length * 2);
+            for (int b = 0; b < BANDS; b++) link(b, id, keys[b]);
+            return id;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    private void link(int band, int id, int key) {
+        int slot = key & (heads[band].length - 1);
+        bandKeys[band][id] = key;
+        next[band][id] = heads[band][slot];
+        heads[band][slot] = id;
+    }
+
+    private void rehash(int capacity) {
+        heads = newHeads(capacity);
+        for (int id = 0; id < items.size() - 1; id++) {
+            for (int b = 0; b < BANDS; b++) link(b, id, bandKeys[b][id]);
+        }
+    }
+
+    /** Indexes every subject of the current question bank, reading items without caching them. */
+    static QuestionIndex ofBank() {
+        QuestionIndex index = new QuestionIndex();
+        for (String subject : QuestionBank.subjects()) {
+            int n = QuestionBank.view(subject).size();
+            for (int i = 0; i < n; i++) index.add(subject, i, QuestionBank.uncached(subject, i));
+        }
+        return index;
+    }
+
+    // ---------- Search ----------
+
+    /** Items containing every word of {@code query}, in id order, at most {@code limit}. */
+    java.util.List<Item> search(String query, int limit) {
+        java.util.List<String> terms = tokens(query);
+        java.util.List<Item> out = new ArrayList<>();
+        if (terms.isEmpty()) return out;
+        lock.readLock().lock();
+        try {
+            IntList[] lists = new IntList[terms.size()];
+            for (int i = 0; i < lists.length; i++) {
+                lists[i] = postings.get(terms.get(i));
+                if (lists[i] == null) return out;
+            }
+            Arrays.sort(lists, Comparator.comparingInt(l -> l.size));
+            IntList shortest = lists[0];
+            int[] from = new int[lists.length];
+            candidates:
+            for (int k = 0; k < shortest.size && out.size() < limit; k++) {
+                int id = shortest.data[k];
+                for (int i = 1; i < lists.length; i++) {
+                    int at = Arrays.binarySearch(lists[i].data, from[i], lists[i].size, id);
+                    if (at < 0) {
+                        from[i] = -at - 1;
+                        continue candidates;
+                    }
+                    from[i] = at + 1;
+                }
+                out.add(items.get(id));
+            }
+            return out;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Number of items containing {@code word}. */
+    int frequency(String word) {
+        lock.readLock().lock();
+        try {
+            IntList l = postings.get(word.toLowerCase(Locale.ROOT));
+            return l == null ? 0 : l.size;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // ---------- Near duplicates ----------
+
+    /** Indexed items at least {@code threshold} similar to a draft {@code q}, most similar first. */
+    java.util.List<Match> nearDuplicates(Question q, double threshold) {
+        long[] shingles = shingles(q);
+        lock.readLock().lock();
+        try {
+            return near(new Item(-1, null, -1), shingles, bandKeys(shingles), threshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Other indexed items at least {@code threshold} similar to item {@code id}, most similar first. */
+    java.util.List<Match> nearDuplicates(int id, double threshold) {
+        lock.readLock().lock();
+        try {
+            int[] keys = new int[BANDS];
+            for (int b = 0; b < BANDS; b++) keys[b] = bandKeys[b][id];
+            return near(items.get(id), shingleSets[id], keys, threshold);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /** Caller holds the read lock. */
+    private java.util.List<Match> near(Item probe, long[] shingles, int[] keys, double threshold) {
+        java.util.List<Match> out = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        for (int b = 0; b < BANDS; b++) {
+            for (int id = heads[b][keys[b] & (heads[b].length - 1)]; id >= 0; id = next[b][id]) {
+                if (bandKeys[b][id] != keys[b] || id == probe.id || !seen.add(id)) continue;
+                double j = jaccard(shingles, shingleSets[id]);
+                if (j >= threshold) out.add(new Match(probe, items.get(id), j));
+            }
+        }
+        out.sort((x, y) -> Double.compare(y.similarity, x.similarity));
+        return out;
+    }
+
+    /** Every pair of indexed items at least {@code threshold} similar, up to {@code limit}. */
+    java.util.List<Match> duplicatePairs(double threshold, int limit) {
+        java.util.List<Match> out = new ArrayList<>();
+        lock.readLock().lock();
+        try {
+            Set<Long> seen = new HashSet<>();
+            for (int a = 0; a < items.size() && out.size() < limit; a++) {
+                for (int b = 0; b < BANDS; b++) {
+                    int key = bandKeys[b][a];
+                    for (int id = heads[b][key & (heads[b].length - 1)]; id >= 0; id = next[b][id]) {
+                        // Chains run newest first; pair each item only with older ones.
+                        if (id >= a || bandKeys[b][id] != key || !seen.add((long) a << 32 | id)) continue;
+                        double j = jaccard(shingleSets[a], shingleSets[id]);
+                        if (j >= threshold) out.add(new Match(items.get(id), items.get(a), j));
+                    }
+                }
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+        return out;
+    }
+
+    // ---------- Text ----------
+
+    private static java.util.List<String> words(Question q) {
+        java.util.List<String> w = tokens(q.text);
+        for (String o : q.options) w.addAll(tokens(o));
+        return w;
+    }
+
+    /** Lower-cased runs of letters and digits. */
+    static java.util.List<String> tokens(String s) {
+        java.util.List<String> out = new ArrayList<>();
+        int start = -1;
+        for (int i = 0; i <= s.length(); i++) {
+            boolean word = i < s.length() && Character.isLetterOrDigit(s.charAt(i));
+            if (word && start < 0) start = i;
+            else if (!word && start >= 0) {
+                out.add(s.substring(start, i).toLowerCase(Locale.ROOT));
+                start = -1;
+            }
+        }
+        return out;
+    }
+
+    /** Sorted, distinct hashes of consecutive word pairs (single words for one-word items). */
+    static long[] shingles(Question q) {
+        return shingles(words(q));
+    }
+
+    private static long[] shingles(java.util.List<String> w) {
+        if (w.isEmpty()) return new long[0];
+        long[] h = new long[Math.max(1, w.size() - 1)];
+        if (w.size() == 1) {
+            h[0] = Paper.mix(hash(w.get(0)));
+        } else {
+            for (int i = 0; i + 1 < w.size(); i++) h[i] = Paper.mix(hash(w.get(i)) * 31 + hash(w.get(i + 1)));
+        }
+        Arrays.sort(h);
+        int n = 0;
+        for (int i = 0; i < h.length; i++) if (i == 0 || h[i] != h[i - 1]) h[n++] = h[i];
+        return Arrays.copyOf(h, n);
+    }
+
+    private static long hash(String s) {
+        long h = 0xcbf29ce484222325L;
+        for (int i = 0; i < s.length(); i++) h = (h ^ s.charAt(i)) * 0x100000001b3L;
+        return h;
+    }
+
+    /** One int per band, from {@code ROWS} min-hashes each. */
+    static int[] bandKeys(long[] shingles) {
+        long[] min = new long[BANDS * ROWS];
+        Arrays.fill(min, Long.MAX_VALUE);
+        for (long s : shingles) {
+            // Shingles are already mixed; one multiply-xorshift per seed is enough to permute them.
+            for (int i = 0; i < min.length; i++) {
+                long v = (s ^ SEEDS[i]) * 0x9E3779B97F4A7C15L;
+                min[i] = Math.min(min[i], v ^ (v >>> 31));
+            }
+        }
+        int[] keys = new int[BANDS];
+        for (int b = 0; b < BANDS; b++) {
+            long key = b;
+            for (int r = 0; r < ROWS; r++) key = Paper.mix(key * 31 + min[b * ROWS + r]);
+            keys[b] = (int) (key ^ (key >>> 32));
+        }
+        return keys;
+    }
+
+    /** |A ∩ B| / |A ∪ B| of two sorted, distinct arrays. */
+    static double jaccard(long[] a, long[] b) {
+        if (a.length == 0 && b.length == 0) return 1;
+        int i = 0, j = 0, common = 0;
+        while (i < a.length && j < b.length) {
+            if (a[i] == b[j]) {
+                common++;
+                i++;
+                j++;
+            } else if (a[i] < b[j]) {
+                i++;
+            } else {
+                j++;
+            }
+        }
+        return (double) common / (a.length + b.length - common);
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * Indexes the bank (or {@code n} synthetic items with planted near duplicates), then runs
+     * searches and a duplicate scan:
+     * {@code java exam.QuestionIndex [--synthetic <n>] [words...]}
+     */
+    public static void main(String[] args) {
+        int synthetic = args.length >= 2 && args[0].equals("--synthetic") ? Integer.parseInt(args[1]) : 0;
+        java.util.List<String> queries = new ArrayList<>(Arrays.asList(args).subList(synthetic > 0 ? 2 : 0, args.length));
+        long t0 = System.nanoTime();
+        QuestionIndex index;
+        if (synthetic > 0) {
+            index = new QuestionIndex();
+            Random rnd = new Random(7);
+            String[] vocab = new String[5000];
+            for (int i = 0; i < vocab.length; i++) vocab[i] = "term" + i;
+            Question last = null;
+            for (int i = 0; i < synthetic; i++) {
+                Question q;
+                if (last != null && i % 1000 == 0) {
+                    q = new Question(last.text + " today", last.options, last.correctIndex); // planted near duplicate
+                } else {
+                    StringBuilder sb = new StringBuilder("Which statement about");
+                    for (int k = 0; k < 12; k++) sb.append(' ').append(vocab[rnd.nextInt(vocab.length)]);
+                    q = new Question(sb.append(" is true?").toString(),
+                            new String[]{"alpha " + i, "beta " + i, "gamma " + i, "delta " + i}, 0);
+                }
+                index.add("Synthetic", i, q);
+                last = q;
+            }
+            if (queries.isEmpty()) queries.addAll(Arrays.asList("term17 term42", "statement term4999", "gamma 12345"));
+        } else {
+            index = ofBank();
+            if (queries.isEmpty()) queries.addAll(Arrays.asList("protocol", "java loop", "tcp"));
+        }
+        System.out.printf("Indexed %,d items in %.0f ms%n", index.size(), (System.nanoTime() - t0) / 1e6);
+
+        for (String q : queries) {
+            long t = System.nanoTime();
+            java.util.List<Item> hits = index.search(q, 10);
+            System.out.printf("search \"%s\": %d hits in %.3f ms%n", q, hits.size(), (System.nanoTime() - t) / 1e6);
+            for (Item it : hits.subList(0, Math.min(3, hits.size()))) {
+                // Synthetic items are not in the bank, so only their position is shown.
+                System.out.printf("  [%s #%d]%s%n", it.subject, it.index, synthetic > 0 ? "" : " " + it.text());
+            }
+        }
+
+        long t = System.nanoTime();
+        java.util.List<Match> dups = index.duplicatePairs(DEFAULT_THRESHOLD, Integer.MAX_VALUE);
+        System.out.printf("%,d near-duplicate pairs (>= %.1f) in %.0f ms%n", dups.size(), DEFAULT_THRESHOLD, (System.nanoTime() - t) / 1e6);
+        for (Match m : dups.subList(0, Math.min(5, dups.size()))) {
+            System.out.printf("  %.2f  [%s #%d] ~ [%s #%d]%n", m.similarity, m.a.subject, m.a.index, m.b.subject, m.b.index);
+        }
+        if (index.size() > 0) {
+            t = System.nanoTime();
+            int n = index.nearDuplicates(index.size() / 2, DEFAULT_THRESHOLD).size();
+            System.out.printf("nearDuplicates of one item: %d in %.3f ms%n", n, (System.nanoTime() - t) / 1e6);
+        }
+    }
+}
@@ -0,0 +1,168 @@
+package exam;
+
+import javax.swing.*;
+import java.awt.*;
+import java.awt.event.ComponentAdapter;
+import java.awt.event.ComponentEvent;
+import java.awt.event.MouseAdapter;
+import java.awt.event.MouseEvent;
+import java.util.function.IntConsumer;
+
+/**
+ * Grid of question numbers showing which questions are answered, unanswered or flagged,
+ * with the current one outlined; clicking a cell jumps to it.
+ *
+ * Cells are not components: the grid is painted straight from the session's answer sheet,
+ * and only the rows inside the clip are painted, so a 500-question paper costs the same
+ * per frame as a 20-question one. Changes repaint just the affected cell.
+ */
+final class QuestionPalette extends JComponent implements Scrollable {
+    static final int CELL = 34;
+    static final int GAP = 4;
+    static final int DEFAULT_COLUMNS = 5;
+
+    private static final Color UNANSWERED = new Color(0xE0E0E0);
+    private static final Color ANSWERED = new Color(0x81C784);
+    private static final Color FLAGGED = new Color(0xFB8C00);
+    private static final Color CURRENT = new Color(0x1E88E5);
+
+    private final IntConsumer jump;
+    private ExamSession session;
+    private int current = -1;
+    private int columns = DEFAULT_COLUMNS;
+
+    QuestionPalette(IntConsumer jump) {
+        this.jump = jump;
+        setOpaque(true);
+        setBackground(Color.WHITE);
+        setFont(new Font("SansSerif", Font.PLAIN, 12));
+        setToolTipText(""); // enables getToolTipText(MouseEvent)
+        addMouseListener(new MouseAdapter() {
+            @Override
+            public void mouseClicked(MouseEvent e) {
+                int i = indexAt(e.getPoint());
+                if (i >= 0) jump.accept(i);
+            }
+        });
+        addComponentListener(new ComponentAdapter() {
+            @Override
+            public void componentResized(ComponentEvent e) {
+                int fit = Math.max(1, (getWidth() - GAP) / (CELL + GAP));
+                if (fit != columns) {
+                    columns = fit;
+                    revalidate();
+                    repaint();
+                }
+            }
+        });
+    }
+
+    void setSession(ExamSession s) {
+        this.session = s;
+        this.current = s == null ? -1 : s.currentIndex;
+        revalidate();
+        repaint();
+    }
+
+    void setCurrent(int index) {
+        int old = current;
+        current = index;
+        repaintCell(old);
+        repaintCell(index);
+        if (index >= 0) scrollRectToVisible(cellBounds(index));
+    }
+
+    /** Repaints one cell after its answer or flag changed. */
+    void repaintCell(int index) {
+        if (index >= 0) repaint(cellBounds(index));
+    }
+
+    private int questionCount() {
+        return session == null ? 0 : session.questions.size();
+    }
+
+    Rectangle cellBounds(int index) {
+        return new Rectangle(GAP + (index % columns) * (CELL + GAP), GAP + (index / columns) * (CELL + GAP), CELL, CELL);
+    }
+
+    int indexAt(Point p) {
+        int col = (p.x - GAP) / (CELL + GAP), row = (p.y - GAP) / (CELL + GAP);
+        if (p.x < GAP || p.y < GAP || col >= columns) return -1;
+        int i = row * columns + col;
+        return i < questionCount() && cellBounds(i).contains(p) ? i : -1;
+    }
+
+    @Override
+    public String getToolTipText(MouseEvent e) {
+        int i = indexAt(e.getPoint());
+        if (i < 0) return null;
+        String state = session.selection(i) >= 0 ? "answered" : "not answered";
+        return "Q" + (i + 1) + ": " + state + (session.sheet.isFlagged(i) ? ", flagged" : "");
+    }
+
+    @Override
+    public Dimension getPreferredSize() {
+        int rows = (questionCount() + columns - 1) / columns;
+        return new Dimension(GAP + DEFAULT_COLUMNS * (CELL + GAP), GAP + rows * (CELL + GAP));
+    }
+
+    @Override
+    protected void paintComponent(Graphics g) {
+        Rectangle clip = g.getClipBounds();
+        g.setColor(getBackground());
+        g.fillRect(clip.x, clip.y, clip.width, clip.height);
+        int n = questionCount();
+        if (n == 0) return;
+        Graphics2D g2 = (Graphics2D) g;
+        g2.setRenderingHint(RenderingHints.KEY_TEXT_ANTIALIASING, RenderingHints.VALUE_TEXT_ANTIALIAS_ON);
+        FontMetrics fm = g.getFontMetrics();
+        int firstRow = Math.max(0, (clip.y - GAP) / (CELL + GAP));
+        int lastRow = (clip.y + clip.height) / (CELL + GAP);
+        int from = firstRow * columns, to = Math.min(n, (lastRow + 1) * columns);
+        for (int i = from; i < to; i++) {
+            Rectangle r = cellBounds(i);
+            g.setColor(session.selection(i) >= 0 ? ANSWERED : UNANSWERED);
+            g.fillRect(r.x, r.y, r.width, r.height);
+            if (session.sheet.isFlagged(i)) {
+                g.setColor(FLAGGED);
+                g.fillPolygon(new int[]{r.x + r.width - 12, r.x + r.width, r.x + r.width},
+                        new int[]{r.y, r.y, r.y + 12}, 3);
+            }
+            if (i == current) {
+                g.setColor(CURRENT);
+                g.drawRect(r.x, r.y, r.width - 1, r.height - 1);
+                g.drawRect(r.x + 1, r.y + 1, r.width - 3, r.height - 3);
+            }
+            String label = Integer.toString(i + 1);
+            g.setColor(Color.DARK_GRAY);
+            g.drawString(label, r.x + (r.width - fm.stringWidth(label)) / 2, r.y + (r.height + fm.getAscent() - fm.getDescent()) / 2);
+        }
+    }
+
+    // ---------- Scrollable ----------
+
+    @Override
+    public Dimension getPreferredScrollableViewportSize() {
+        return new Dimension(GAP + DEFAULT_COLUMNS * (CELL + GAP), 8 * (CELL + GAP));
+    }
+
+    @Override
+    public int getScrollableUnitIncrement(Rectangle visible, int orientation, int direction) {
+        return CELL + GAP;
+    }
+
+    @Override
+    public int getScrollableBlockIncrement(Rectangle visible, int orientation, int direction) {
+        return orientation == SwingConstants.VERTICAL ? visible.height : visible.width;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportWidth() {
+        return true;
+    }
+
+    @Override
+    public boolean getScrollableTracksViewportHeight() {
+        return false;
+    }
+}
@@ -0,0 +1,108 @@
+package exam;
+
+import javax.swing.text.BadLocationException;
+import javax.swing.text.PlainDocument;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Resolves the questions around the one on screen on a background thread, so moving to a
+ * neighbour finds it ready: the item is decoded from the bank, its options are put in paper
+ * order, and its text is already in a {@link PlainDocument} the question area can adopt
+ * without re-inserting text on the EDT.
+ *
+ * Keeps at most {@code 2 * radius + 1} questions. The EDT asks with {@link #ready} and, for a
+ * question that is not ready yet (e.g. after a long jump), {@link #load}s it on the worker;
+ * only background threads may call the blocking {@link #get}.
+ */
+final class QuestionPrefetcher {
+    static final int DEFAULT_RADIUS = 2;
+
+    /** A question ready to show. */
+    static final class Prepared {
+        final int index;
+        final Question question;
+        final PlainDocument document;
+
+        Prepared(int index, Question question, PlainDocument document) {
+            this.index = index;
+            this.question = question;
+            this.document = document;
+        }
+    }
+
+    private final int radius;
+    private final ExecutorService worker = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "question-prefetch");
+        t.setDaemon(true);
+        t.setPriority(Thread.NORM_PRIORITY - 1);
+        return t;
+    });
+    private final ConcurrentHashMap<Integer, Prepared> ready = new ConcurrentHashMap<>();
+    private volatile ExamSession session;
+
+    QuestionPrefetcher() {
+        this(DEFAULT_RADIUS);
+    }
+
+    QuestionPrefetcher(int radius) {
+        this.radius = radius;
+    }
+
+    /** Switches to another session and drops everything prepared for the previous one. */
+    void reset(ExamSession s) {
+        if (session == s) return;
+        session = s;
+        ready.clear();
+    }
+
+    /** The prepared question at {@code index}, preparing it on this thread if the prefetch has not. */
+    Prepared get(int index) {
+        ExamSession s = session;
+        Prepared p = ready.get(index);
+        return p != null ? p : prepare(s, index);
+    }
+
+    /** The question at {@code index} if it is prepared already, otherwise null; never blocks. */
+    Prepared ready(int index) {
+        return ready.get(index);
+    }
+
+    /** Prepares the question at {@code index} on the worker, unless it is ready already. */
+    CompletableFuture<Prepared> load(int index) {
+        ExamSession s = session;
+        Prepared p = ready.get(index);
+        return p != null ? CompletableFuture.completedFuture(p) : CompletableFuture.supplyAsync(() -> prepare(s, index), worker);
+    }
+
+    /** Prepares the window around {@code index} in the background and forgets the rest. */
+    void around(int index) {
+        ExamSession s = session;
+        if (s == null) return;
+        ready.keySet().removeIf(i -> Math.abs(i - index) > radius);
+        worker.execute(() -> {
+            // Nearest first: next, previous, then further out.
+            for (int d = 1; d <= radius; d++) {
+                for (int i : new int[]{index + d, index - d}) {
+                    if (session != s) return;
+                    if (i >= 0 && i < s.questions.size() && !ready.containsKey(i)) prepare(s, i);
+                }
+            }
+        });
+    }
+
+    private Prepared prepare(ExamSession s, int index) {
+        Question q = s.question(index);
+        PlainDocument doc = new PlainDocument();
+        try {
+            doc.insertString(0, (index + 1) + ". " + q.text, null);
+        } catch (BadLocationException e) {
+            throw new IllegalStateException(e);
+        }
+        Prepared p = new Prepared(index, q, doc);
+        if (session == s) ready.put(index, p);
+        return p;
+    }
+}
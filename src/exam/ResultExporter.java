@@ -0,0 +1,392 @@
+package exam;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.util.*;
+
+/**
+ * Streams graded results for a whole cohort to files: one row per candidate and one per
+ * question presented (the whole paper, or the items an adaptive exam asked), as CSV ({@code candidates.csv} + {@code answers.csv}) or JSON
+ * ({@code results.json}, one object per candidate with its answers nested).
+ *
+ * Rows are encoded straight into a direct buffer that is written to the file channel when
+ * it fills, so memory stays flat however many rows are exported. Strings are encoded and
+ * escaped char by char and numbers digit by digit. Question text is read from the bank
+ * without going through its item cache, and the escaped bytes of recently exported items
+ * are kept in a small direct-mapped cache, so an export costs the same memory for a bank
+ * of ten items or a million and rows for popular items allocate nothing.
+ */
+final class ResultExporter implements Closeable {
+    enum Format { CSV, JSON }
+
+    static final int BUFFER_BYTES = 1 << 16;
+    static final int TEXT_CACHE_BITS = 12; // 4096 encoded question texts
+
+    private static final byte[] CANDIDATES_HEADER = ascii("user,subject,score,total,attempted,flagged\n");
+    private static final byte[] ANSWERS_HEADER = ascii("user,subject,item,question,selected,correct,result\n");
+    private static final byte[][] RESULTS = {ascii("unanswered"), ascii("incorrect"), ascii("correct")};
+    private static final byte[][] JSON_OPTIONS = {ascii("\"A\""), ascii("\"B\""), ascii("\"C\""), ascii("\"D\"")};
+    private static final byte[] JSON_NULL = ascii("null");
+    private static final byte[] HEX = ascii("0123456789abcdef");
+
+    private final Format format;
+    private final Map<String, AnswerKey> keys;
+    private final Sink candidates;
+    private final Sink answers; // CSV only
+    private final Map<String, Integer> subjectIds = new HashMap<>();
+    // Direct-mapped: slot = hash(subject, item); a colliding item simply replaces the old one.
+    private final int[] cachedSubject = new int[1 << TEXT_CACHE_BITS]; // subject id + 1, 0 when empty
+    private final int[] cachedItem = new int[1 << TEXT_CACHE_BITS];
+    private final byte[][] cachedText = new byte[1 << TEXT_CACHE_BITS][];
+    private long candidateRows;
+    private long answerRows;
+    private long skipped;
+
+    ResultExporter(Path dir, Format format, Map<String, AnswerKey> keys) throws IOException {
+        this.format = format;
+        this.keys = keys;
+        Files.createDirectories(dir);
+        if (format == Format.CSV) {
+            candidates = new Sink(dir.resolve("candidates.csv"));
+            answers = new Sink(dir.resolve("answers.csv"));
+            candidates.bytes(CANDIDATES_HEADER);
+            answers.bytes(ANSWERS_HEADER);
+        } else {
+            candidates = new Sink(dir.resolve("results.json"));
+            answers = null;
+            candidates.ascii('[');
+        }
+    }
+
+    /** Appends one submission, grading it first if it has no score yet. */
+    void add(CohortGrader.Submission s) throws IOException {
+        AnswerKey key = keys.get(s.subject);
+        if (key == null || key.size() != s.sheet.size()) {
+            skipped++;
+            return;
+        }
+        if (s.score < 0) s.score = s.sheet.score(key);
+        if (format == Format.CSV) addCsv(s, key);
+        else addJson(s, key);
+        candidateRows++;
+    }
+
+    private void addCsv(CohortGrader.Submission s, AnswerKey key) throws IOException {
+        Sink c = candidates;
+        c.csv(s.user).ascii(',').csv(s.subject).ascii(',').number(s.score).ascii(',').number(s.length())
+                .ascii(',').number(s.sheet.attemptedCount()).ascii(',').number(s.sheet.flaggedCount()).ascii('\n');
+        int subject = subjectId(s.subject);
+        for (int i = 0; i < s.length(); i++) {
+            int q = s.item(i), sel = s.sheet.get(q), correct = key.correct(q);
+            Sink a = answers;
+            a.csv(s.user).ascii(',').csv(s.subject).ascii(',').number(q).ascii(',').bytes(text(subject, s.subject, q)).ascii(',');
+            if (sel >= 0) a.ascii((char) ('A' + sel));
+            a.ascii(',').ascii((char) ('A' + correct)).ascii(',').bytes(RESULTS[sel < 0 ? 0 : sel == correct ? 2 : 1]).ascii('\n');
+            answerRows++;
+        }
+    }
+
+    private void addJson(CohortGrader.Submission s, AnswerKey key) throws IOException {
+        Sink c = candidates;
+        if (candidateRows > 0) c.ascii(',');
+        c.ascii('\n').ascii("{\"user\":").json(s.user).ascii(",\"subject\":").json(s.subject)
+                .ascii(",\"score\":").number(s.score).ascii(",\"total\":").number(s.length())
+                .ascii(",\"attempted\":").number(s.sheet.attemptedCount())
+                .ascii(",\"flagged\":").number(s.sheet.flaggedCount()).ascii(",\"answers\":[");
+        int subject = subjectId(s.subject);
+        for (int i = 0; i < s.length(); i++) {
+            int q = s.item(i), sel = s.sheet.get(q);
+            if (i > 0) c.ascii(',');
+            c.ascii("{\"item\":").number(q).ascii(",\"question\":").bytes(text(subject, s.subject, q))
+                    .ascii(",\"selected\":").bytes(sel < 0 ? JSON_NULL : JSON_OPTIONS[sel])
+                    .ascii(",\"correct\":").bytes(JSON_OPTIONS[key.correct(q)]).ascii('}');
+            answerRows++;
+        }
+        c.ascii("]}");
+    }
+
+    private int subjectId(String subject) {
+        Integer id = subjectIds.get(subject);
+        if (id == null) subjectIds.put(subject, id = subjectIds.size());
+        return id;
+    }
+
+    /** Escaped UTF-8 question text of a subject's item, from the cache or freshly encoded. */
+    private byte[] text(int subjectId, String subject, int item) {
+        int slot = (item * 0x9E3779B9 + subjectId * 0x85EBCA6B) >>> (32 - TEXT_CACHE_BITS);
+        if (cachedSubject[slot] == subjectId + 1 && cachedItem[slot] == item) return cachedText[slot];
+        byte[] t = Sink.encode(QuestionBank.text(subject, item), format);
+        cachedSubject[slot] = subjectId + 1;
+        cachedItem[slot] = item;
+        cachedText[slot] = t;
+        return t;
+    }
+
+    long candidateRows() {
+        return candidateRows;
+    }
+
+    long answerRows() {
+        return answerRows;
+    }
+
+    long skipped() {
+        return skipped;
+    }
+
+    long bytesWritten() {
+        return candidates.written + (answers == null ? 0 : answers.written);
+    }
+
+    /**
+     * Finishes the files and moves them into place, replacing earlier exports. Every file is
+     * flushed and forced to disk before any is renamed, so a failure or crash while writing
+     * never leaves a new file beside an old one or publishes a truncated one; on failure the
+     * temp files are dropped.
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            if (format == Format.JSON) candidates.ascii("\n]\n");
+            candidates.finish();
+            if (answers != null) answers.finish();
+            if (answers != null) answers.publish();
+            candidates.publish();
+        } catch (Throwable t) {
+            try {
+                abort();
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+    }
+
+    /** Drops the files being written; earlier exports in the directory stay as they were. */
+    void abort() throws IOException {
+        try {
+            candidates.abort();
+        } finally {
+            if (answers != null) answers.abort();
+        }
+    }
+
+    /**
+     * Exports every submission; the iterator is consumed once and never buffered. If the
+     * export fails, nothing in {@code dir} is replaced.
+     */
+    static ResultExporter export(Iterator<CohortGrader.Submission> submissions, Path dir, Format format,
+                                 Map<String, AnswerKey> keys) throws IOException {
+        ResultExporter out = new ResultExporter(dir, format, keys);
+        try {
+            while (submissions.hasNext()) out.add(submissions.next());
+        } catch (Throwable t) {
+            try {
+                out.abort();
+            } catch (IOException e) {
+                t.addSuppressed(e);
+            }
+            throw t;
+        }
+        out.close(); // aborts itself if it fails
+        return out;
+    }
+
+    private static byte[] ascii(String s) {
+        return s.getBytes(StandardCharsets.US_ASCII);
+    }
+
+    // ---------- Sink ----------
+
+    /**
+     * Buffered channel writer that encodes values in place. Writes go to a sibling temp file
+     * that {@link #finish} forces to disk and {@link #publish} renames over the target, so
+     * readers never see a half-written file.
+     */
+    private static final class Sink {
+        private final Path file;
+        private final Path tmp;
+        private final FileChannel channel;
+        private final ByteBuffer buf = ByteBuffer.allocateDirect(BUFFER_BYTES);
+        private final byte[] digits = new byte[20];
+        long written;
+
+        Sink(Path file) throws IOException {
+            this.file = file;
+            this.tmp = file.resolveSibling(file.getFileName() + ".tmp");
+            this.channel = FileChannel.open(tmp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+        }
+
+        private void ensure(int n) throws IOException {
+            if (buf.remaining() < n) flush();
+        }
+
+        private void flush() throws IOException {
+            buf.flip();
+            while (buf.hasRemaining()) written += channel.write(buf);
+            buf.clear();
+        }
+
+        Sink ascii(char c) throws IOException {
+            ensure(1);
+            buf.put((byte) c);
+            return this;
+        }
+
+        Sink ascii(String s) throws IOException {
+            for (int i = 0; i < s.length(); i++) ascii(s.charAt(i));
+            return this;
+        }
+
+        Sink bytes(byte[] b) throws IOException {
+            if (b.length > buf.capacity()) {
+                flush();
+                ByteBuffer w = ByteBuffer.wrap(b);
+                while (w.hasRemaining()) written += channel.write(w);
+                return this;
+            }
+            ensure(b.length);
+            buf.put(b);
+            return this;
+        }
+
+        Sink number(long v) throws IOException {
+            ensure(20);
+            if (v < 0) {
+                buf.put((byte) '-');
+                v = -v; // exported counts are never Long.MIN_VALUE
+            }
+            int n = 0;
+            do {
+                digits[n++] = (byte) ('0' + v % 10);
+                v /= 10;
+            } while (v != 0);
+            while (n > 0) buf.put(digits[--n]);
+            return this;
+        }
+
+        /** A CSV field: quoted only if it contains a comma, quote or line break. */
+        Sink csv(String s) throws IOException {
+            boolean quote = needsQuotes(s);
+            if (quote) ascii('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"') ascii('"');
+                i = utf8(s, i);
+            }
+            if (quote) ascii('"');
+            return this;
+        }
+
+        /** A quoted JSON string. */
+        Sink json(String s) throws IOException {
+            ascii('"');
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == '"' || c == '\\') {
+                    ascii('\\').ascii(c);
+                } else if (c < 0x20) {
+                    ensure(6);
+                    buf.put((byte) '\\').put((byte) 'u').put((byte) '0').put((byte) '0')
+                            .put(HEX[c >>> 4]).put(HEX[c & 15]);
+                } else {
+                    i = utf8(s, i);
+                }
+            }
+            return ascii('"');
+        }
+
+        /** Encodes the char (or surrogate pair) at {@code i}; returns the index of its last char. */
+        private int utf8(String s, int i) throws IOException {
+            ensure(4);
+            char c = s.charAt(i);
+            if (c < 0x80) {
+                buf.put((byte) c);
+            } else if (c < 0x800) {
+                buf.put((byte) (0xC0 | c >>> 6)).put((byte) (0x80 | c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < s.length() && Character.isLowSurrogate(s.charAt(i + 1))) {
+                int cp = Character.toCodePoint(c, s.charAt(++i));
+                buf.put((byte) (0xF0 | cp >>> 18)).put((byte) (0x80 | cp >>> 12 & 0x3F))
+                        .put((byte) (0x80 | cp >>> 6 & 0x3F)).put((byte) (0x80 | cp & 0x3F));
+            } else {
+                if (Character.isSurrogate(c)) c = '?'; // unpaired surrogate
+                buf.put((byte) (0xE0 | c >>> 12)).put((byte) (0x80 | c >>> 6 & 0x3F)).put((byte) (0x80 | c & 0x3F));
+            }
+            return i;
+        }
+
+        private static boolean needsQuotes(String s) {
+            for (int i = 0; i < s.length(); i++) {
+                char c = s.charAt(i);
+                if (c == ',' || c == '"' || c == '\n' || c == '\r') return true;
+            }
+            return false;
+        }
+
+        /** Encodes one value as a standalone escaped field, for text reused across rows. */
+        static byte[] encode(String s, Format f) {
+            String escaped;
+            if (f == Format.CSV) {
+                escaped = needsQuotes(s) ? '"' + s.replace("\"", "\"\"") + '"' : s;
+            } else {
+                StringBuilder sb = new StringBuilder(s.length() + 2).append('"');
+                for (int i = 0; i < s.length(); i++) {
+                    char c = s.charAt(i);
+                    if (c == '"' || c == '\\') sb.append('\\').append(c);
+                    else if (c < 0x20) sb.append("\\u00").append((char) HEX[c >>> 4]).append((char) HEX[c & 15]);
+                    else sb.append(c);
+                }
+                escaped = sb.append('"').toString();
+            }
+            return escaped.getBytes(StandardCharsets.UTF_8);
+        }
+
+        /** Writes out the buffer and forces the temp file's data and size to disk. */
+        void finish() throws IOException {
+            flush();
+            channel.force(true);
+            channel.close();
+        }
+
+        /** Renames the finished temp file over the target. */
+        void publish() throws IOException {
+            Files.move(tmp, file, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+        }
+
+        /** Closes and deletes the temp file; harmless after {@link #publish}. */
+        void abort() throws IOException {
+            try {
+                channel.close();
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+        }
+    }
+
+    // ---------- Main ----------
+
+    /**
+     * Exports every submitted session in a journal, or a synthetic cohort:
+     * {@code java exam.ResultExporter (--journal <dir> | --synthetic <n>) <out-dir> [csv|json]}
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 3 || !(args[0].equals("--journal") || args[0].equals("--synthetic"))) {
+            System.err.println("Usage: java exam.ResultExporter (--journal <dir> | --synthetic <n>) <out-dir> [csv|json]");
+            System.exit(2);
+        }
+        Iterator<CohortGrader.Submission> cohort = args[0].equals("--journal")
+                ? CohortGrader.journalCohort(Paths.get(args[1]))
+                : CohortGrader.syntheticCohort(Integer.parseInt(args[1]));
+        Format format = args.length > 3 ? Format.valueOf(args[3].toUpperCase(Locale.ROOT)) : Format.CSV;
+        long start = System.nanoTime();
+        ResultExporter out = export(cohort, Paths.get(args[2]), format, CohortGrader.bankKeys());
+        double secs = (System.nanoTime() - start) / 1e9;
+        System.out.printf("Exported %,d candidates and %,d answers (%,d MB) in %.2f s (%,.0f answers/s), %,d skipped%n",
+                out.candidateRows(), out.answerRows(), out.bytesWritten() >> 20, secs, out.answerRows() / secs, out.skipped());
+    }
+}
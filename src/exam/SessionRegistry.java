@@ -0,0 +1,150 @@
+package exam;
+
+import java.util.*;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Function;
+
+/**
+ * Candidates keyed by user, split over a fixed number of lock stripes so exam-start
+ * storms for different users don't serialize on one lock. Each stripe counts how often
+ * it was acquired and how often the acquirer had to wait, which is what
+ * {@link #hottest(int)} reports.
+ *
+ * Only membership changes and lookups take a stripe lock; answer recording goes straight
+ * to the session ({@link ExamSession#select}) without any lock.
+ */
+class SessionRegistry<V> {
+    private final Stripe<V>[] stripes;
+    private final int mask;
+
+    static final class Stripe<V> {
+        final int id;
+        final ReentrantLock lock = new ReentrantLock();
+        final HashMap<String, V> map = new HashMap<>();
+        // Written under the lock, read racily for reporting.
+        volatile long acquisitions;
+        volatile long contended;
+
+        Stripe(int id) {
+            this.id = id;
+        }
+    }
+
+    /** Point-in-time view of one stripe. */
+    static final class StripeStats {
+        final int stripe;
+        final int size;
+        final long acquisitions;
+        final long contended;
+
+        StripeStats(int stripe, int size, long acquisitions, long contended) {
+            this.stripe = stripe;
+            this.size = size;
+            this.acquisitions = acquisitions;
+            this.contended = contended;
+        }
+
+        double contentionRate() {
+            return acquisitions == 0 ? 0 : (double) contended / acquisitions;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("stripe %d: %d entries, %d acquisitions, %d contended (%.1f%%)",
+                    stripe, size, acquisitions, contended, contentionRate() * 100);
+        }
+    }
+
+    SessionRegistry() {
+        this(Math.max(16, Runtime.getRuntime().availableProcessors() * 4));
+    }
+
+    @SuppressWarnings("unchecked")
+    SessionRegistry(int stripeCount) {
+        int n = Integer.highestOneBit(Math.max(1, stripeCount - 1)) << 1;
+        this.stripes = (Stripe<V>[]) new Stripe<?>[n];
+        this.mask = n - 1;
+        for (int i = 0; i < n; i++) stripes[i] = new Stripe<>(i);
+    }
+
+    private Stripe<V> stripeFor(String key) {
+        int h = key.hashCode();
+        h ^= (h >>> 16);
+        return stripes[(h * 0x9E3779B9) >>> 16 & mask];
+    }
+
+    private static void lock(Stripe<?> s) {
+        if (!s.lock.tryLock()) {
+            s.lock.lock();
+            s.contended++;
+        }
+        s.acquisitions++;
+    }
+
+    V get(String key) {
+        Stripe<V> s = stripeFor(key);
+        lock(s);
+        try {
+            return s.map.get(key);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    V computeIfAbsent(String key, Function<String, ? extends V> create) {
+        Stripe<V> s = stripeFor(key);
+        lock(s);
+        try {
+            V v = s.map.get(key);
+            if (v == null) {
+                v = create.apply(key);
+                s.map.put(key, v);
+            }
+            return v;
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    V remove(String key) {
+        Stripe<V> s = stripeFor(key);
+        lock(s);
+        try {
+            return s.map.remove(key);
+        } finally {
+            s.lock.unlock();
+        }
+    }
+
+    int size() {
+        int n = 0;
+        for (Stripe<V> s : stripes) {
+            lock(s);
+            try {
+                n += s.map.size();
+            } finally {
+                s.lock.unlock();
+            }
+        }
+        return n;
+    }
+
+    int stripeCount() {
+        return stripes.length;
+    }
+
+    java.util.List<StripeStats> stats() {
+        java.util.List<StripeStats> out = new ArrayList<>(stripes.length);
+        for (Stripe<V> s : stripes) {
+            out.add(new StripeStats(s.id, s.map.size(), s.acquisitions, s.contended));
+        }
+        return out;
+    }
+
+    /** The {@code k} stripes with the most contended acquisitions. */
+    java.util.List<StripeStats> hottest(int k) {
+        java.util.List<StripeStats> all = stats();
+        all.sort((a, b) -> Long.compare(b.contended, a.contended));
+        return all.subList(0, Math.min(k, all.size()));
+    }
+}
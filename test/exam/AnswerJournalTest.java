@@ -0,0 +1,176 @@
+package exam;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class AnswerJournalTest {
+    private static final String SUBJECT = "Basic Coding";
+
+    @TempDir
+    Path dir;
+
+    private AnswerJournal open() throws IOException {
+        return AnswerJournal.open(dir, AnswerJournal.Durability.NONE, 0, 4096);
+    }
+
+    private static ExamSession started(AnswerJournal j, String user) throws IOException {
+        ExamSession s = ExamSession.create(user, SUBJECT);
+        s.deadlineMillis = 1_000_000L;
+        j.start(user, s);
+        return s;
+    }
+
+    private java.util.List<String> files(String glob) throws IOException {
+        java.util.List<String> out = new ArrayList<>();
+        try (DirectoryStream<Path> ds = Files.newDirectoryStream(dir, glob)) {
+            for (Path p : ds) out.add(p.getFileName().toString());
+        }
+        return out;
+    }
+
+    @Test
+    void replayRebuildsOpenAndSubmittedSessions() throws IOException {
+        ExamSession alice, bob;
+        try (AnswerJournal j = open()) {
+            alice = started(j, "alice");
+            bob = started(j, "bob");
+            j.answer("alice", 0, 2);
+            j.answer("alice", 1, 3);
+            j.answer("alice", 1, 1); // a later answer replaces an earlier one
+            j.navigate("alice", 1);
+            j.answer("bob", 0, 0);
+            j.submit("bob", 7);
+        }
+
+        AnswerJournal.Replayed r = AnswerJournal.replay(dir);
+        assertEquals(1, r.open.size());
+        assertEquals(1, r.submitted.size());
+
+        AnswerJournal.Recovered a = r.open.get("alice");
+        assertEquals(SUBJECT, a.subject);
+        assertEquals(alice.paper.seed, a.seed);
+        assertEquals(alice.paper.size(), a.size);
+        assertEquals(1_000_000L, a.deadlineMillis);
+        assertEquals(2, a.selected[0]);
+        assertEquals(1, a.selected[1]);
+        for (int i = 2; i < a.selected.length; i++) assertEquals(-1, a.selected[i]);
+        assertEquals(1, a.currentIndex);
+        assertFalse(a.submitted);
+
+        AnswerJournal.Recovered b = r.submitted.get(0);
+        assertEquals("bob", b.user);
+        assertEquals(bob.paper.seed, b.seed);
+        assertTrue(b.submitted);
+        assertEquals(7, b.score);
+        assertEquals(0, b.selected[0]);
+
+        ExamSession restored = a.toSession();
+        assertEquals(2, restored.selection(0));
+        assertEquals(1, restored.selection(1));
+        assertEquals(1, restored.currentIndex);
+    }
+
+    @Test
+    void startingAgainAbandonsTheOpenSession() throws IOException {
+        try (AnswerJournal j = open()) {
+            started(j, "alice");
+            j.answer("alice", 0, 2);
+            started(j, "alice");
+        }
+        AnswerJournal.Recovered a = AnswerJournal.replay(dir).open.get("alice");
+        assertEquals(-1, a.selected[0]);
+    }
+
+    @Test
+    void replayFollowsRecordsAcrossSegments() throws IOException {
+        // 4 KB segments hold well under a hundred records, so this rolls several times.
+        try (AnswerJournal j = open()) {
+            started(j, "alice");
+            for (int k = 0; k < 500; k++) j.answer("alice", k % 5, k % 4);
+        }
+        assertTrue(files("journal-*.log").size() > 1);
+        AnswerJournal.Recovered a = AnswerJournal.replay(dir).open.get("alice");
+        for (int i = 0; i < 5; i++) assertEquals((495 + i) % 4, a.selected[i]);
+    }
+
+    @Test
+    void checkpointReplacesSegmentsWithoutLosingState() throws IOException {
+        try (AnswerJournal j = open()) {
+            started(j, "alice");
+            started(j, "bob");
+            started(j, "carol");
+            j.answer("alice", 0, 3); // one answer: kept as an answer record
+            for (int i = 0; i < 4; i++) j.answer("bob", i, i); // several: kept as a sheet snapshot
+            j.navigate("bob", 3);
+            j.answer("carol", 2, 1);
+            j.submit("carol", 1);
+        }
+
+        AnswerJournal.Replayed before = AnswerJournal.replay(dir);
+        AnswerJournal.Replayed compacted = AnswerJournal.checkpoint(dir);
+        assertEquals(java.util.List.of(), files("journal-*.log"));
+        assertEquals(1, files("checkpoint-*.log").size());
+        assertSameState(before, compacted);
+        assertSameState(before, AnswerJournal.replay(dir));
+
+        // A journal opened after the checkpoint appends to a newer segment, and the next
+        // checkpoint folds both into a single file.
+        try (AnswerJournal j = open()) {
+            j.answer("alice", 1, 2);
+            j.submit("bob", 4);
+        }
+        AnswerJournal.Replayed after = AnswerJournal.checkpoint(dir);
+        assertEquals(java.util.List.of(), files("journal-*.log"));
+        assertEquals(1, files("checkpoint-*.log").size());
+        assertTrue(after.lastSegment > before.lastSegment);
+
+        AnswerJournal.Replayed r = AnswerJournal.replay(dir);
+        assertEquals(1, r.open.size());
+        assertEquals(3, r.open.get("alice").selected[0]);
+        assertEquals(2, r.open.get("alice").selected[1]);
+        assertEquals(2, r.submitted.size());
+        AnswerJournal.Recovered bob = r.submitted.get(1);
+        assertEquals("bob", bob.user);
+        assertEquals(4, bob.score);
+        assertEquals(3, bob.currentIndex);
+        for (int i = 0; i < 4; i++) assertEquals(i, bob.selected[i]);
+    }
+
+    @Test
+    void checkpointOfAnEmptyDirectoryWritesNothing() throws IOException {
+        AnswerJournal.Replayed r = AnswerJournal.checkpoint(dir);
+        assertEquals(0, r.size());
+        assertEquals(java.util.List.of(), files("*"));
+    }
+
+    private static void assertSameState(AnswerJournal.Replayed expected, AnswerJournal.Replayed actual) {
+        assertEquals(expected.open.keySet(), actual.open.keySet());
+        for (String user : expected.open.keySet()) assertSameSession(expected.open.get(user), actual.open.get(user));
+        assertEquals(expected.submitted.size(), actual.submitted.size());
+        for (int i = 0; i < expected.submitted.size(); i++) {
+            assertSameSession(expected.submitted.get(i), actual.submitted.get(i));
+        }
+        assertEquals(expected.lastSegment, actual.lastSegment);
+    }
+
+    private static void assertSameSession(AnswerJournal.Recovered e, AnswerJournal.Recovered a) {
+        assertEquals(e.user, a.user);
+        assertEquals(e.subject, a.subject);
+        assertEquals(e.seed, a.seed);
+        assertEquals(e.size, a.size);
+        assertEquals(e.adaptiveLength, a.adaptiveLength);
+        assertEquals(e.deadlineMillis, a.deadlineMillis);
+        assertArrayEquals(e.selected, a.selected);
+        assertEquals(e.currentIndex, a.currentIndex);
+        assertEquals(e.submitted, a.submitted);
+        assertEquals(e.score, a.score);
+    }
+}
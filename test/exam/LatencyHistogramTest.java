@@ -0,0 +1,77 @@
+package exam;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LatencyHistogramTest {
+    @Test
+    void smallValuesHaveTheirOwnBuckets() {
+        for (long v = 0; v < 256; v++) {
+            assertEquals(v, LatencyHistogram.index(v));
+            assertEquals(v, LatencyHistogram.highestValue((int) v));
+        }
+    }
+
+    @Test
+    void bucketsAreContiguousAndIncreasing() {
+        // Every bucket starts one past the previous bucket's highest value, up to Long.MAX_VALUE.
+        int last = LatencyHistogram.index(Long.MAX_VALUE);
+        for (int i = 1; i <= last; i++) {
+            long low = LatencyHistogram.highestValue(i - 1) + 1;
+            assertEquals(i, LatencyHistogram.index(low), "lowest value of bucket " + i);
+            assertEquals(i, LatencyHistogram.index(LatencyHistogram.highestValue(i)), "highest value of bucket " + i);
+            assertTrue(LatencyHistogram.highestValue(i) >= low);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(last));
+    }
+
+    @Test
+    void bucketWidthStaysWithinOnePercent() {
+        for (long v = 256; v > 0 && v < Long.MAX_VALUE / 3; v = v * 3 + 7) {
+            long high = LatencyHistogram.highestValue(LatencyHistogram.index(v));
+            assertTrue(high >= v);
+            assertTrue(high - v <= v / 128, v + " reported as " + high);
+        }
+    }
+
+    @Test
+    void percentilesOfAUniformRange() {
+        LatencyHistogram h = new LatencyHistogram("t");
+        for (long v = 1; v <= 100_000; v++) h.record(v * 1000);
+        assertEquals(100_000, h.count());
+        assertEquals(100_000_000L, h.max());
+        assertEquals(50_000_500.0, h.mean(), 1e-6);
+        assertWithin(50_000_000L, h.valueAtPercentile(50));
+        assertWithin(99_000_000L, h.valueAtPercentile(99));
+        assertEquals(h.max(), h.valueAtPercentile(100));
+        assertWithin(1000, h.valueAtPercentile(0));
+        assertEquals(28_867_513, h.stdDeviation(), 28_867_513 * 0.01);
+    }
+
+    @Test
+    void percentileNeverExceedsTheMaximum() {
+        LatencyHistogram h = new LatencyHistogram("t");
+        h.record(1_000_001);
+        assertEquals(1_000_001, h.valueAtPercentile(50));
+        assertEquals(1_000_001, h.valueAtPercentile(99.9));
+    }
+
+    @Test
+    void negativeValuesCountAsZeroAndResetClears() {
+        LatencyHistogram h = new LatencyHistogram("t");
+        h.record(-5);
+        assertEquals(1, h.count());
+        assertEquals(0, h.valueAtPercentile(100));
+        h.reset();
+        assertEquals(0, h.count());
+        assertEquals(0, h.max());
+        assertEquals(0, h.valueAtPercentile(50));
+        assertEquals(0, h.mean());
+    }
+
+    /** The histogram reports the top of a bucket: at or above the true value, by under 1%. */
+    private static void assertWithin(long expected, long actual) {
+        assertTrue(actual >= expected && actual - expected <= expected / 128, "expected ~" + expected + " but was " + actual);
+    }
+}
@@ -0,0 +1,131 @@
+package exam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class LeaderboardTest {
+    private static final Leaderboard.Scale PERCENT = Leaderboard.Scale.PERCENT_CORRECT;
+
+    @Test
+    void ranksShareTiesAndCountOnlyHigherScores() {
+        Leaderboard lb = new Leaderboard();
+        lb.record("a", PERCENT, "S", 900);
+        lb.record("b", PERCENT, "S", 700);
+        lb.record("c", PERCENT, "S", 700);
+        lb.record("d", PERCENT, "S", 0);
+        Leaderboard.Board b = lb.board(PERCENT, "S");
+        assertEquals(4, b.size());
+        assertEquals(1, b.rank("a"));
+        assertEquals(2, b.rank("b"));
+        assertEquals(2, b.rank("c"));
+        assertEquals(4, b.rank("d"));
+        assertEquals(-1, b.rank("nobody"));
+        assertEquals(1, b.rankOf(Leaderboard.MAX_POINTS));
+        assertEquals(2, b.rankOf(701));
+        assertEquals(4, b.rankOf(699));
+    }
+
+    @Test
+    void onlyABetterResultReplacesTheEntry() {
+        Leaderboard lb = new Leaderboard();
+        lb.record("a", PERCENT, "S", 500);
+        lb.record("a", PERCENT, "S", 300);
+        Leaderboard.Board b = lb.board(PERCENT, "S");
+        assertEquals(1, b.size());
+        assertEquals(500, b.entry("a").points);
+        lb.record("a", PERCENT, "S", 800);
+        assertEquals(1, b.size());
+        assertEquals(800, b.entry("a").points);
+        assertEquals(1.0, b.percentileRank(800));
+        assertEquals(0.0, b.percentileRank(500));
+    }
+
+    @Test
+    void ranksAndPercentilesMatchACountingScan() {
+        Leaderboard lb = new Leaderboard();
+        Random rnd = new Random(11);
+        int[] best = new int[2000];
+        java.util.Arrays.fill(best, -1);
+        for (int k = 0; k < 10_000; k++) {
+            int user = rnd.nextInt(best.length);
+            int points = rnd.nextInt(Leaderboard.MAX_POINTS + 1);
+            lb.record("u" + user, PERCENT, "S", points);
+            best[user] = Math.max(best[user], points);
+        }
+        Leaderboard.Board b = lb.board(PERCENT, "S");
+        int n = 0;
+        long[] atPoints = new long[Leaderboard.MAX_POINTS + 1];
+        for (int p : best) {
+            if (p >= 0) {
+                n++;
+                atPoints[p]++;
+            }
+        }
+        assertEquals(n, b.size());
+
+        for (int user = 0; user < best.length; user++) {
+            if (best[user] < 0) continue;
+            long higher = 0;
+            for (int p : best) if (p > best[user]) higher++;
+            assertEquals(1 + higher, b.rank("u" + user));
+        }
+
+        for (double pct : new double[]{0, 1, 10, 25, 50, 75, 90, 99, 99.9, 100}) {
+            long need = Math.max(1, (long) Math.ceil(pct / 100 * n));
+            long seen = 0;
+            int expected = -1;
+            for (int p = 0; p <= Leaderboard.MAX_POINTS; p++) {
+                seen += atPoints[p];
+                if (seen >= need) {
+                    expected = p;
+                    break;
+                }
+            }
+            assertEquals(expected, b.pointsAtPercentile(pct), "p" + pct);
+        }
+    }
+
+    @Test
+    void topListsBestFirstWithEarlierResultsAheadOnTies() {
+        Leaderboard lb = new Leaderboard();
+        lb.record("late", PERCENT, "S", 600);
+        lb.record("first", PERCENT, "S", 950);
+        lb.record("later", PERCENT, "S", 600);
+        java.util.List<Leaderboard.Entry> top = lb.board(PERCENT, "S").top(3);
+        assertEquals(3, top.size());
+        assertEquals("first", top.get(0).user);
+        assertEquals("late", top.get(1).user);
+        assertEquals("later", top.get(2).user);
+        assertEquals(1, lb.board(PERCENT, "S").top(1).size());
+    }
+
+    @Test
+    void overallAveragesBestResultsPerScale() {
+        Leaderboard lb = new Leaderboard();
+        lb.record("a", PERCENT, "S1", 800);
+        lb.record("a", PERCENT, "S2", 400);
+        lb.record("b", PERCENT, "S1", 700);
+        lb.record("a", Leaderboard.Scale.ABILITY, "S1", 100);
+        Leaderboard.Board overall = lb.overall(PERCENT);
+        assertEquals(2, overall.size());
+        assertEquals(600, overall.entry("a").points);
+        assertEquals(1, overall.rank("b"));
+        assertEquals(2, overall.rank("a"));
+        assertEquals(1, lb.overall(Leaderboard.Scale.ABILITY).size());
+        assertNull(lb.board(Leaderboard.Scale.ABILITY, "S2"));
+    }
+
+    @Test
+    void emptyBoardsAndOutOfRangePoints() {
+        Leaderboard lb = new Leaderboard();
+        Leaderboard.Board overall = lb.overall(PERCENT);
+        assertEquals(0, overall.size());
+        assertEquals(-1, overall.pointsAtPercentile(50));
+        assertTrue(Double.isNaN(overall.percentileRank(0)));
+        assertThrows(IllegalArgumentException.class, () -> lb.record("a", PERCENT, "S", Leaderboard.MAX_POINTS + 1));
+        assertThrows(IllegalArgumentException.class, () -> lb.record("a", PERCENT, "S", -1));
+    }
+}
@@ -0,0 +1,77 @@
+package exam;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PaperTest {
+    private static java.util.List<Question> bank(int size) {
+        java.util.List<Question> items = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            items.add(new Question("Q" + i, new String[]{"a" + i, "b" + i, "c" + i, "d" + i}, i % 4));
+        }
+        return items;
+    }
+
+    @Test
+    void questionOrderIsAPermutationForEverySize() {
+        // Powers of 4 fill the Feistel domain exactly; the others need cycle-walking.
+        for (int size : new int[]{1, 2, 3, 4, 5, 15, 16, 17, 63, 64, 65, 1000, 4096, 4097}) {
+            for (long seed : new long[]{0, 1, -1, 0x5DEECE66DL}) {
+                Paper p = new Paper("S", bank(size), seed);
+                boolean[] seen = new boolean[size];
+                for (int pos = 0; pos < size; pos++) {
+                    int item = p.item(pos);
+                    assertTrue(item >= 0 && item < size, "item " + item + " of " + size);
+                    assertFalse(seen[item], "item " + item + " shown twice, size " + size + ", seed " + seed);
+                    seen[item] = true;
+                }
+            }
+        }
+    }
+
+    @Test
+    void sameSeedReproducesThePaper() {
+        java.util.List<Question> items = bank(500);
+        Paper a = new Paper("S", items, 42), b = new Paper("S", items, 42);
+        for (int pos = 0; pos < items.size(); pos++) {
+            assertEquals(a.item(pos), b.item(pos));
+            for (int shown = 0; shown < 4; shown++) assertEquals(a.bankOption(pos, shown), b.bankOption(pos, shown));
+        }
+    }
+
+    @Test
+    void differentSeedsGiveDifferentOrders() {
+        java.util.List<Question> items = bank(500);
+        Paper a = new Paper("S", items, 1), b = new Paper("S", items, 2);
+        int same = 0;
+        for (int pos = 0; pos < items.size(); pos++) if (a.item(pos) == b.item(pos)) same++;
+        assertTrue(same < 50, same + " of 500 positions agree");
+    }
+
+    @Test
+    void optionOrderIsInvertibleAndKeepsTheCorrectAnswer() {
+        java.util.List<Question> items = bank(37);
+        Paper p = new Paper("S", items, 7);
+        for (int pos = 0; pos < items.size(); pos++) {
+            Question bankItem = items.get(p.item(pos));
+            Question shown = p.question(pos);
+            assertEquals(bankItem.text, shown.text);
+            for (int j = 0; j < 4; j++) {
+                int option = p.bankOption(pos, j);
+                assertEquals(j, p.shownOption(pos, option));
+                assertEquals(bankItem.options[option], shown.options[j]);
+            }
+            assertEquals(bankItem.options[bankItem.correctIndex], shown.options[shown.correctIndex]);
+        }
+    }
+
+    @Test
+    void positionsOutsideThePaperAreRejected() {
+        Paper p = new Paper("S", bank(10), 3);
+        assertThrows(IndexOutOfBoundsException.class, () -> p.item(-1));
+        assertThrows(IndexOutOfBoundsException.class, () -> p.item(10));
+    }
+}